@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Stream that closes additional resources, e.g. result set, statement and connection, when it is closed or fully
+ * read. Stream of known length is also closed when the specified number of bytes is read, as drivers do not read
+ * such streams up to the end.
+ */
+final class BlobInputStream extends FilterInputStream {
+    private final AutoCloseable[] resources;
+    private long remaining;
+    private boolean closed;
+
+    BlobInputStream(InputStream in, AutoCloseable... resources) {
+        this(in, -1, resources);
+    }
+
+    BlobInputStream(InputStream in, long length, AutoCloseable... resources) {
+        super(in);
+        this.resources = resources;
+        this.remaining = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (closed) {
+            return -1;
+        }
+        var b = super.read();
+        if (b == -1 || (remaining > 0 && --remaining == 0)) {
+            close();
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            return -1;
+        }
+        var count = super.read(b, off, len);
+        if (count == -1 || (remaining > 0 && (remaining -= count) <= 0)) {
+            close();
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        IOException exception = null;
+        try {
+            super.close();
+        } catch (IOException ex) {
+            exception = ex;
+        }
+
+        for (var resource : resources) {
+            try {
+                resource.close();
+            } catch (Exception ex) {
+                if (exception == null) {
+                    exception = new IOException(ex);
+                } else {
+                    exception.addSuppressed(ex);
+                }
+            }
+        }
+
+        if (exception != null) {
+            throw exception;
+        }
+    }
+}
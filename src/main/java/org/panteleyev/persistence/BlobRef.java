@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * <p>Handle of the binary column value that is not loaded with the record and is transferred as a stream. Such
+ * columns are not included into SELECT statements. Records retrieved from the database hold stored
+ * handles that read the value by primary key when {@link #openStream()} is called.</p>
+ * <p>Handles created by <code>of</code> methods are written by {@link java.sql.PreparedStatement#setBinaryStream}.
+ * Stored handles are not written by {@link DAO#update(Record)}, i.e. the value is not changed.</p>
+ * <p>Stream of the stored handle keeps database connection open until it is closed or fully read.</p>
+ * <p>Handles keep values out of records and SELECT statements, so memory is taken by at most one value at a time
+ * instead of every loaded record. JDBC drivers may still hold the whole value in memory while it is transferred:
+ * SQLite driver reads and writes values as byte arrays, MySQL driver reads each row of the result set completely
+ * and builds the whole statement for client side prepared statements. Values that do not fit into memory are not
+ * supported by these drivers.</p>
+ */
+public final class BlobRef {
+    /**
+     * Supplier of the value stream.
+     */
+    @FunctionalInterface
+    public interface StreamSupplier {
+        /**
+         * Opens stream.
+         *
+         * @return stream
+         * @throws IOException in case of I/O error
+         */
+        InputStream open() throws IOException;
+    }
+
+    private final StreamSupplier supplier;
+    private final long length;
+    private final boolean stored;
+
+    BlobRef(StreamSupplier supplier, long length, boolean stored) {
+        this.supplier = Objects.requireNonNull(supplier);
+        this.length = length;
+        this.stored = stored;
+    }
+
+    /**
+     * Creates handle of the byte array.
+     *
+     * @param bytes value
+     * @return handle
+     */
+    public static BlobRef of(byte[] bytes) {
+        Objects.requireNonNull(bytes);
+        return new BlobRef(() -> new ByteArrayInputStream(bytes), bytes.length, false);
+    }
+
+    /**
+     * Creates handle of the file content.
+     *
+     * @param path file
+     * @return handle
+     * @throws IOException if file size cannot be determined
+     */
+    public static BlobRef of(Path path) throws IOException {
+        return new BlobRef(() -> Files.newInputStream(path), Files.size(path), false);
+    }
+
+    /**
+     * Creates handle of the stream. Supplier is called each time the value is written.
+     *
+     * @param supplier stream supplier
+     * @param length   number of bytes in the stream
+     * @return handle
+     */
+    public static BlobRef of(StreamSupplier supplier, long length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Length must be >= 0");
+        }
+        return new BlobRef(supplier, length, false);
+    }
+
+    /**
+     * Opens stream of the value. Caller is responsible for closing the stream.
+     *
+     * @return stream or null if value is <code>NULL</code> or the row does not exist
+     * @throws IOException in case of I/O or SQL error
+     */
+    public InputStream openStream() throws IOException {
+        return supplier.open();
+    }
+
+    /**
+     * Writes value to the output stream.
+     *
+     * @param out output stream
+     * @return number of bytes written, 0 if value is <code>NULL</code>
+     * @throws IOException in case of I/O or SQL error
+     */
+    public long transferTo(OutputStream out) throws IOException {
+        try (var in = openStream()) {
+            return in == null ? 0 : in.transferTo(out);
+        }
+    }
+
+    /**
+     * Returns number of bytes.
+     *
+     * @return number of bytes or -1 if handle is stored
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns true if handle refers to the value stored in the database.
+     *
+     * @return true if handle is stored
+     */
+    public boolean isStored() {
+        return stored;
+    }
+}
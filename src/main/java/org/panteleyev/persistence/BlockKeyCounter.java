@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntToLongFunction;
+
+/**
+ * <p>Primary key counter serving keys from blocks reserved in the shared sequence table (hi/lo allocation).</p>
+ * <p>Keys are handed out from the current block without locking. Thread that finds the block exhausted
+ * reserves the next one while other threads wait for it. Unused keys of the discarded block are lost.</p>
+ */
+final class BlockKeyCounter extends KeyCounter {
+    private static final class Block {
+        private final AtomicLong next;
+        private final long limit;
+
+        Block(long first, long limit) {
+            this.next = new AtomicLong(first);
+            this.limit = limit;
+        }
+    }
+
+    private final int blockSize;
+    private final IntToLongFunction allocator;
+
+    private volatile Block block = new Block(1, 0);
+
+    /**
+     * Creates block counter.
+     *
+     * @param intKey    if primary key is int or {@link Integer}
+     * @param blockSize default number of keys in the block
+     * @param allocator reserves block of the given size and returns its first key
+     */
+    BlockKeyCounter(boolean intKey, int blockSize, IntToLongFunction allocator) {
+        super(intKey);
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be >= 1");
+        }
+        this.blockSize = blockSize;
+        this.allocator = allocator;
+    }
+
+    @Override
+    long reserve(int n) {
+        var current = block;
+        var first = current.next.getAndAdd(n);
+        if (first + n - 1 <= current.limit) {
+            return checkRange(first, n);
+        }
+        return refill(current, n);
+    }
+
+    private synchronized long refill(Block exhausted, int n) {
+        var current = block;
+        if (current != exhausted) {
+            var first = current.next.getAndAdd(n);
+            if (first + n - 1 <= current.limit) {
+                return checkRange(first, n);
+            }
+        }
+
+        var size = Math.max(blockSize, n);
+        var first = allocator.applyAsLong(size);
+        block = new Block(first + n, first + size - 1);
+        return checkRange(first, n);
+    }
+
+    /**
+     * Discards the current block. Value is ignored as keys are always taken from the sequence table.
+     *
+     * @param v ignored
+     */
+    @Override
+    void set(long v) {
+        block = new Block(1, 0);
+    }
+}
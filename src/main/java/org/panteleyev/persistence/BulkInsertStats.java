@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result of the bulk insert, see {@link DAO#bulkInsert(java.sql.Connection, int, int, java.util.List)}.
+ */
+public final class BulkInsertStats {
+    private final long rows;
+    private final long batches;
+    private final long commits;
+    private final long elapsedNanos;
+
+    BulkInsertStats(long rows, long batches, long commits, long elapsedNanos) {
+        this.rows = rows;
+        this.batches = batches;
+        this.commits = commits;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns number of inserted rows.
+     *
+     * @return number of rows
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns number of executed batches.
+     *
+     * @return number of batches
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * Returns number of commits made by the bulk insert.
+     *
+     * @return number of commits
+     */
+    public long getCommits() {
+        return commits;
+    }
+
+    /**
+     * Returns elapsed time.
+     *
+     * @param unit time unit
+     * @return elapsed time
+     */
+    public long getElapsed(TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns insert rate.
+     *
+     * @return rows per second, 0 if no rows were inserted
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : rows * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkInsertStats{rows=" + rows + ", batches=" + batches + ", commits=" + commits
+            + ", elapsed=" + getElapsed(TimeUnit.MILLISECONDS) + "ms, rowsPerSecond="
+            + String.format("%.1f", getRowsPerSecond()) + "}";
+    }
+}
@@ -26,39 +26,56 @@
 
 package org.panteleyev.persistence;
 
+import org.panteleyev.persistence.annotations.Cacheable;
 import org.panteleyev.persistence.annotations.Column;
 import org.panteleyev.persistence.annotations.ForeignKey;
 import org.panteleyev.persistence.annotations.Index;
 import org.panteleyev.persistence.annotations.PrimaryKey;
 import org.panteleyev.persistence.annotations.RecordBuilder;
+import org.panteleyev.persistence.annotations.Sequence;
 import org.panteleyev.persistence.annotations.Table;
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.VarHandle;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import static org.panteleyev.persistence.DAOTypes.AUTO_INCREMENT_TYPES;
 import static org.panteleyev.persistence.DAOTypes.CLASS_NOT_ANNOTATED;
 import static org.panteleyev.persistence.DAOTypes.TYPE_ENUM;
 import static org.panteleyev.persistence.DAOTypes.TYPE_INT;
 import static org.panteleyev.persistence.DAOTypes.TYPE_INTEGER;
-import static org.panteleyev.persistence.DAOTypes.TYPE_LONG;
-import static org.panteleyev.persistence.DAOTypes.TYPE_LONG_PRIM;
 
 /**
  * Persistence API entry point.
@@ -120,11 +137,13 @@ public class DAO {
         private final Field field;
         private final VarHandle handle;
         private final boolean autoIncrement;
+        private final boolean generated;
 
-        PrimaryKeyHandle(Field field, VarHandle handle, boolean autoIncrement) {
+        PrimaryKeyHandle(Field field, VarHandle handle, boolean autoIncrement, boolean generated) {
             this.field = field;
             this.handle = handle;
             this.autoIncrement = autoIncrement;
+            this.generated = generated;
         }
 
         public Field getField() {
@@ -138,25 +157,177 @@ public class DAO {
         public boolean isAutoIncrement() {
             return autoIncrement;
         }
+
+        public boolean isGenerated() {
+            return generated;
+        }
+    }
+
+    /**
+     * Compiled projection: SELECT statement of the projected columns and row mapper.
+     */
+    static class Projection {
+        final String sql;
+        final RowMapper<?> mapper;
+
+        Projection(String sql, RowMapper<?> mapper) {
+            this.sql = sql;
+            this.mapper = mapper;
+        }
+    }
+
+    /**
+     * Entity cache guarded against stale records: record loaded before concurrent invalidation is not cached.
+     * While any transaction that wrote to the table is open records are not cached at all, otherwise committed
+     * state read by another connection before commit would stay in the cache.
+     */
+    private static final class CacheHolder {
+        private final EntityCache<Object, Record<Object>> cache;
+        private final Set<Connection> transactions = new HashSet<>();
+        private long generation;
+
+        CacheHolder(EntityCache<Object, Record<Object>> cache) {
+            this.cache = cache;
+        }
+
+        Record<Object> get(Object key) {
+            return cache.get(key);
+        }
+
+        /**
+         * Returns generation to be passed to {@link #put(long, Object, Record)}.
+         *
+         * @return current generation, -1 if table has uncommitted writes
+         */
+        synchronized long getGeneration() {
+            if (!transactions.isEmpty()) {
+                // Transaction is finished when connection is closed or switched to auto-commit
+                transactions.removeIf(conn -> isClosed(conn) || isAutoCommit(conn));
+                if (!transactions.isEmpty()) {
+                    return -1;
+                }
+            }
+            return generation;
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized void put(long generation, Object key, Record record) {
+            if (generation >= 0 && this.generation == generation) {
+                cache.put(key, (Record<Object>) record);
+            }
+        }
+
+        synchronized void invalidate(Connection conn, Collection<?> keys) {
+            generation++;
+            keys.forEach(cache::invalidate);
+            addTransaction(conn);
+        }
+
+        synchronized void invalidateAll(Connection conn) {
+            invalidateAll();
+            addTransaction(conn);
+        }
+
+        synchronized void invalidateAll() {
+            generation++;
+            cache.invalidateAll();
+        }
+
+        private void addTransaction(Connection conn) {
+            if (!isAutoCommit(conn)) {
+                transactions.add(conn);
+            }
+        }
+    }
+
+    /**
+     * Read-only view of the contiguous range of primary keys.
+     */
+    private static final class KeyRange<K extends Number> extends AbstractList<K> implements RandomAccess {
+        private final KeyCounter counter;
+        private final long first;
+        private final int size;
+
+        KeyRange(KeyCounter counter, long first, int size) {
+            this.counter = counter;
+            this.first = first;
+            this.size = size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public K get(int index) {
+            Objects.checkIndex(index, size);
+            return (K) counter.box(first + index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
     }
 
     private static final String NOT_ANNOTATED = "Class is not properly annotated";
 
-    private final Map<Class<? extends Record>, Number> primaryKeys = new ConcurrentHashMap<>();
+    /**
+     * Maximum number of primary keys in a single IN list, see {@link #getAll(Connection, Collection, Class)}.
+     */
+    public static final int MAX_IN_LIST_SIZE = 512;
+
+    // Key of the generated keys insert statement in the map of batch insert statements by number of rows
+    private static final int GENERATED_KEYS_STATEMENT = 0;
+
+    // Estimated length of a value that cannot be measured, larger than any max_allowed_packet
+    private static final long UNKNOWN_VALUE_LENGTH = Integer.MAX_VALUE;
+
+    /**
+     * Name of the table holding sequences used for block allocation of primary keys, see {@link Sequence}.
+     */
+    public static final String SEQUENCE_TABLE = "persistence_sequence";
+
+    private final Map<Class<? extends Record>, KeyCounter> primaryKeys = new ConcurrentHashMap<>();
+    private volatile boolean sequenceTableCreated;
 
     private final Map<Class<? extends Record>, String> selectAllSql = new ConcurrentHashMap<>();
     private final Map<Class<? extends Record>, String> selectByIdSql = new ConcurrentHashMap<>();
     private final Map<Class<? extends Record>, String> insertSql = new ConcurrentHashMap<>();
+    private final Map<Class<? extends Record>, String> generatedInsertSql = new ConcurrentHashMap<>();
     private final Map<Class<? extends Record>, String> updateSql = new ConcurrentHashMap<>();
+    private final Map<Class<? extends Record>, String> upsertSql = new ConcurrentHashMap<>();
+    private final Map<Class<? extends Record>, Map<BitSet, String>> updateChangedSql = new ConcurrentHashMap<>();
     private final Map<Class<? extends Record>, String> deleteSql = new ConcurrentHashMap<>();
+    private final Map<Class<? extends Record>, Map<Integer, String>> selectByIdsSql = new ConcurrentHashMap<>();
+    private final Map<Class<? extends Record>, String> selectFirstPageSql = new ConcurrentHashMap<>();
+    private final Map<Class<? extends Record>, String> selectPageSql = new ConcurrentHashMap<>();
+    private final Map<Class<? extends Record>, Map<Integer, String>> multiRowInsertSql = new ConcurrentHashMap<>();
+    private final Map<Class<? extends Record>, Map<Integer, String>> multiRowUpsertSql = new ConcurrentHashMap<>();
+
+    private final Map<Class<? extends Record>, RowMapper<?>> rowMappers = new ConcurrentHashMap<>();
+    private final Map<Class<? extends Record>, RecordBinder> binders = new ConcurrentHashMap<>();
+    private final Map<Class<? extends Record>, Optional<CacheHolder>> entityCaches = new ConcurrentHashMap<>();
+    private final Map<Class<? extends Record>, TableReplica<?, ?>> replicas = new ConcurrentHashMap<>();
+    private final Map<Class<? extends Record>, Map<String, Query.Statement>> queries = new ConcurrentHashMap<>();
+    private final Map<Class<? extends Record>, Map<Object, Projection>> projections = new ConcurrentHashMap<>();
+    private final Map<Field, Map<Integer, String>> lazySelectSql = new ConcurrentHashMap<>();
 
     private static final Map<Class<? extends Record>, PrimaryKeyHandle> PRIMARY_KEY_HANDLE_MAP
         = new ConcurrentHashMap<>();
-    private static final Map<Class<? extends Record>, ConstructorHandle> CONSTRUCTOR_MAP = new ConcurrentHashMap<>();
-    private static final Map<Class<? extends Record>, Map<String, VarHandle>> COLUMN_MAP = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, ConstructorHandle> CONSTRUCTOR_MAP = new ConcurrentHashMap<>();
+    private static final Map<Class<? extends Record>, Boolean> GENERATED_KEY_MAP = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Map<String, VarHandle>> COLUMN_MAP = new ConcurrentHashMap<>();
+    private static final Map<Class<? extends Record>, List<Field>> COLUMN_FIELD_MAP = new ConcurrentHashMap<>();
+    private static final Map<Class<? extends Record>, List<Field>> SELECT_FIELD_MAP = new ConcurrentHashMap<>();
 
     private DataSource datasource;
 
+    private volatile int fetchSize;
+    private volatile boolean indexedLookupsOnly;
+    private volatile long maxMultiRowInsertLength = -1;
+    private volatile boolean serverVersionSet;
+    private volatile DirtyTracker dirtyTracker;
+    private volatile EntityCacheFactory entityCacheFactory = DAO::newEntityCache;
+    private volatile StatementCache statementCache = new StatementCache(0);
+
     private DAOProxy proxy;
     private DatabaseType databaseType;
 
@@ -212,8 +383,29 @@ public class DAO {
     public void setDataSource(DataSource ds, DatabaseType databaseType) {
         this.datasource = ds;
         primaryKeys.clear();
+        sequenceTableCreated = false;
         insertSql.clear();
+        generatedInsertSql.clear();
         deleteSql.clear();
+        selectByIdsSql.clear();
+        selectFirstPageSql.clear();
+        selectPageSql.clear();
+        multiRowInsertSql.clear();
+        upsertSql.clear();
+        updateChangedSql.clear();
+        multiRowUpsertSql.clear();
+        queries.clear();
+        projections.clear();
+        lazySelectSql.clear();
+        maxMultiRowInsertLength = -1;
+        serverVersionSet = false;
+        rowMappers.clear();
+        binders.clear();
+        entityCaches.clear();
+        replicas.clear();
+        var previous = statementCache;
+        statementCache = new StatementCache(previous.getMaxSize());
+        previous.close();
         proxy = databaseType.newProxy();
         this.databaseType = databaseType;
     }
@@ -228,6 +420,55 @@ public class DAO {
         return getDataSource().getConnection();
     }
 
+    /**
+     * Returns maximum number of prepared statements cached per connection.
+     *
+     * @return statement cache size, 0 if caching is disabled
+     */
+    public int getStatementCacheSize() {
+        return statementCache.getMaxSize();
+    }
+
+    /**
+     * <p>Enables caching of prepared statements. Statements created for generated SQL are kept open and reused by
+     * subsequent calls with the same connection. Cache is bounded by the specified number of statements per
+     * connection, least recently used statements are closed on overflow.</p>
+     * <p>Caching is useful only for long living connections passed to methods explicitly. Statements of a
+     * connection are released when it is found closed, {@link #releaseStatements(Connection)} should be called to
+     * release them immediately.</p>
+     * <p>Calling this method closes all cached statements and resets statistics.</p>
+     *
+     * @param size maximum number of statements cached per connection, 0 disables caching
+     * @throws IllegalArgumentException if size is negative
+     */
+    public void setStatementCacheSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Statement cache size must be >= 0");
+        }
+        var previous = statementCache;
+        statementCache = new StatementCache(size);
+        previous.close();
+    }
+
+    /**
+     * Returns statement cache statistics.
+     *
+     * @return statistics
+     */
+    public CacheStats getStatementCacheStats() {
+        return statementCache.getStats();
+    }
+
+    /**
+     * Closes all statements cached for the connection. This method should be called before closing a long living
+     * connection.
+     *
+     * @param conn connection
+     */
+    public void releaseStatements(Connection conn) {
+        statementCache.release(conn);
+    }
+
     /**
      * Retrieves record from the database using record primary key.
      *
@@ -238,24 +479,234 @@ public class DAO {
      * @return record
      */
     public <K, T extends Record<K>> Optional<T> get(K id, Class<? extends T> clazz) {
+        var cache = getCacheHolder(clazz);
+        if (cache != null) {
+            var cached = cache.get(id);
+            if (cached != null) {
+                return Optional.of(clazz.cast(cached));
+            }
+        }
+
         try (var conn = getDataSource().getConnection()) {
-            if (!clazz.isAnnotationPresent(Table.class)) {
-                throw new IllegalStateException(NOT_ANNOTATED);
+            return load(conn, id, clazz, cache);
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Retrieves record from the database using record primary key.
+     *
+     * @param <K>   primary key type
+     * @param <T>   type of the record
+     * @param conn  connection
+     * @param id    record id
+     * @param clazz record class
+     * @return record
+     */
+    public <K, T extends Record<K>> Optional<T> get(Connection conn, K id, Class<? extends T> clazz) {
+        var cache = getCacheHolder(clazz);
+        if (cache != null) {
+            var cached = cache.get(id);
+            if (cached != null) {
+                return Optional.of(clazz.cast(cached));
             }
+        }
 
-            var ps = conn.prepareStatement(getSelectByIdSql(clazz));
+        return load(conn, id, clazz, cache);
+    }
 
-            var primaryKey = findPrimaryKey(clazz);
-            setColumnToPreparedStatement(ps, 1, primaryKey.field, id);
+    private <K, T extends Record<K>> Optional<T> load(Connection conn, K id, Class<? extends T> clazz,
+                                                      CacheHolder cache)
+    {
+        if (!clazz.isAnnotationPresent(Table.class)) {
+            throw new IllegalStateException(NOT_ANNOTATED);
+        }
 
+        var generation = cache == null ? 0 : cache.getGeneration();
+
+        try (var st = statementCache.prepare(conn, getSelectByIdSql(clazz))) {
+            var ps = st.getStatement();
+
+            getBinder(clazz).bindPrimaryKeyValue(id, ps, 1);
+
+            T record;
             try (var set = ps.executeQuery()) {
-                return (set.next()) ? Optional.of(fromSQL(set, clazz)) : Optional.empty();
+                if (!set.next()) {
+                    return Optional.empty();
+                }
+                record = fromSQL(set, clazz);
             }
+
+            // Records read inside a transaction may be rolled back later
+            if (cache != null && conn.getAutoCommit()) {
+                cache.put(generation, id, record);
+            }
+            return Optional.of(record);
         } catch (SQLException ex) {
             throw new RuntimeException(ex);
         }
     }
 
+    /**
+     * Sets factory of entity caches for record classes annotated by {@link Cacheable}. Existing caches are
+     * discarded.
+     *
+     * @param factory entity cache factory
+     */
+    public void setEntityCacheFactory(EntityCacheFactory factory) {
+        entityCacheFactory = Objects.requireNonNull(factory);
+        entityCaches.clear();
+    }
+
+    /**
+     * Returns statistics of the entity cache.
+     *
+     * @param clazz record class
+     * @return statistics or empty if record class is not cacheable
+     */
+    public Optional<CacheStats> getEntityCacheStats(Class<? extends Record> clazz) {
+        return Optional.ofNullable(getCacheHolder(clazz)).map(holder -> holder.cache.getStats());
+    }
+
+    /**
+     * Removes all records of the specified type from the entity cache. This method should be called if table is
+     * modified outside of this DAO instance.
+     *
+     * @param clazz record class
+     */
+    public void invalidateEntityCache(Class<? extends Record> clazz) {
+        var cache = getCacheHolder(clazz);
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    private static <K, T extends Record<K>> EntityCache<K, T> newEntityCache(Class<T> clazz, Cacheable cacheable) {
+        return new LruEntityCache<>(cacheable.maxSize(), cacheable.ttl(), cacheable.unit());
+    }
+
+    @SuppressWarnings("unchecked")
+    private CacheHolder getCacheHolder(Class<? extends Record> clazz) {
+        return entityCaches.computeIfAbsent(clazz, cl -> {
+            var cacheable = cl.getAnnotation(Cacheable.class);
+            return cacheable == null ? Optional.empty() : Optional.of(
+                new CacheHolder(entityCacheFactory.create((Class<Record<Object>>) cl, cacheable)));
+        }).orElse(null);
+    }
+
+    /**
+     * Creates in-memory replica of the table or returns existing one. All records are loaded immediately.
+     *
+     * @param clazz record class
+     * @param <K>   type of the primary key
+     * @param <T>   type of the record
+     * @return table replica
+     */
+    @SuppressWarnings("unchecked")
+    public <K, T extends Record<K>> TableReplica<K, T> replicate(Class<T> clazz) {
+        if (!clazz.isAnnotationPresent(Table.class)) {
+            throw new IllegalStateException(NOT_ANNOTATED);
+        }
+
+        return (TableReplica<K, T>) replicas.computeIfAbsent(clazz, cl -> {
+            var replica = new TableReplica<>(this, clazz);
+            replica.refresh();
+            return replica;
+        });
+    }
+
+    /**
+     * Returns in-memory replica of the table if it was created by {@link #replicate(Class)}.
+     *
+     * @param clazz record class
+     * @param <K>   type of the primary key
+     * @param <T>   type of the record
+     * @return table replica
+     */
+    @SuppressWarnings("unchecked")
+    public <K, T extends Record<K>> Optional<TableReplica<K, T>> getReplica(Class<T> clazz) {
+        return Optional.ofNullable((TableReplica<K, T>) replicas.get(clazz));
+    }
+
+    /**
+     * Removes in-memory replica of the table.
+     *
+     * @param clazz record class
+     */
+    public void removeReplica(Class<? extends Record> clazz) {
+        replicas.remove(clazz);
+    }
+
+    private void invalidate(Connection conn, Record record) {
+        invalidate(conn, List.of(record));
+    }
+
+    private void invalidate(Connection conn, Collection<? extends Record> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        var byClass = new HashMap<Class<? extends Record>, List<Object>>();
+        for (var record : records) {
+            byClass.computeIfAbsent(record.getClass(), k -> new ArrayList<>()).add(record.getPrimaryKey());
+        }
+        byClass.forEach((clazz, ids) -> invalidate(conn, clazz, ids));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void invalidate(Connection conn, Class<? extends Record> clazz, Collection<?> ids) {
+        var cache = getCacheHolder(clazz);
+        if (cache != null) {
+            cache.invalidate(conn, ids);
+        }
+
+        var replica = (TableReplica<Object, ?>) replicas.get(clazz);
+        if (replica != null) {
+            // Rows written inside a transaction may be rolled back later
+            if (isAutoCommit(conn)) {
+                replica.synchronize(conn, (Collection<Object>) ids);
+            } else {
+                replica.invalidate();
+            }
+        }
+    }
+
+    private void invalidateAll(Connection conn, Collection<Class<? extends Record>> tables) {
+        var autoCommit = isAutoCommit(conn);
+        for (var clazz : tables) {
+            var cache = getCacheHolder(clazz);
+            if (cache != null) {
+                cache.invalidateAll(conn);
+            }
+
+            var replica = replicas.get(clazz);
+            if (replica != null) {
+                if (autoCommit) {
+                    replica.clear();
+                } else {
+                    replica.invalidate();
+                }
+            }
+        }
+    }
+
+    private static boolean isAutoCommit(Connection conn) {
+        try {
+            return conn.getAutoCommit();
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private static boolean isClosed(Connection conn) {
+        try {
+            return conn.isClosed();
+        } catch (SQLException ex) {
+            return true;
+        }
+    }
+
     /**
      * Retrieves all records of the specified type.
      *
@@ -272,8 +723,8 @@ public class DAO {
                 throw new IllegalStateException(NOT_ANNOTATED);
             }
 
-            var ps = conn.prepareStatement(getSelectAllSql(clazz));
-            try (var set = ps.executeQuery()) {
+            try (var st = statementCache.prepare(conn, getSelectAllSql(clazz));
+                 var set = st.getStatement().executeQuery()) {
                 while (set.next()) {
                     result.add(fromSQL(set, clazz));
                 }
@@ -314,8 +765,8 @@ public class DAO {
                 throw new IllegalStateException(NOT_ANNOTATED);
             }
 
-            var ps = conn.prepareStatement(getSelectAllSql(clazz));
-            try (var set = ps.executeQuery()) {
+            try (var st = statementCache.prepare(conn, getSelectAllSql(clazz));
+                 var set = st.getStatement().executeQuery()) {
                 while (set.next()) {
                     T r = fromSQL(set, clazz);
                     result.put(r.getPrimaryKey(), r);
@@ -342,596 +793,2466 @@ public class DAO {
         }
     }
 
-    static Map<String, VarHandle> computeColumns(Class<? extends Record> clazz) {
-        try {
-            var lookup = MethodHandles.privateLookupIn(clazz, MethodHandles.lookup());
+    /**
+     * <p>Retrieves records with the specified primary keys. Keys are divided into chunks of at most
+     * {@value #MAX_IN_LIST_SIZE} elements, each chunk is retrieved by a single <code>SELECT ... WHERE pk IN
+     * (...)</code> statement. Number of parameters in such statement is rounded up to power of two so only a few
+     * statement shapes are ever prepared.</p>
+     * <p>Keys that do not exist in the table are absent in the returned map.</p>
+     *
+     * @param <K>   primary key type
+     * @param <T>   type of the record
+     * @param conn  connection
+     * @param ids   primary keys
+     * @param clazz record class
+     * @return map of records by primary key
+     */
+    public <K, T extends Record<K>> Map<K, T> getAll(Connection conn, Collection<K> ids, Class<T> clazz) {
+        if (!clazz.isAnnotationPresent(Table.class)) {
+            throw new IllegalStateException(NOT_ANNOTATED);
+        }
 
-            var result = new HashMap<String, VarHandle>();
-            for (var field : clazz.getDeclaredFields()) {
-                var column = field.getAnnotation(Column.class);
-                if (column != null) {
-                    var handle = lookup.unreflectVarHandle(field);
-                    result.put(column.value(), handle);
-                }
-            }
+        var result = new HashMap<K, T>();
+        if (ids.isEmpty()) {
             return result;
-        } catch (IllegalAccessException ex) {
-            throw new RuntimeException(ex);
         }
-    }
 
+        var keys = new ArrayList<>(new LinkedHashSet<>(ids));
+        var binder = getBinder(clazz);
+        var mapper = getRowMapper(clazz);
 
-    private void fromSQL(ResultSet set, Record record, Map<String, VarHandle> columns) throws SQLException {
-        for (var entry : columns.entrySet()) {
-            var handle = entry.getValue();
-            var value = proxy.getFieldValue(entry.getKey(), handle.varType(), set);
+        var statements = new HashMap<Integer, StatementCache.Entry>();
+        try {
+            for (int from = 0; from < keys.size(); from += MAX_IN_LIST_SIZE) {
+                var chunk = keys.subList(from, Math.min(from + MAX_IN_LIST_SIZE, keys.size()));
+                var size = getInListSize(chunk.size());
+
+                var st = statements.get(size);
+                if (st == null) {
+                    st = statementCache.prepare(conn, getSelectByIdsSql(clazz, size));
+                    statements.put(size, st);
+                }
+                var ps = st.getStatement();
 
-            switch (handle.varType().getName()) {
-                case "int":
-                    handle.set(record, value == null ? 0 : (int) value);
-                    break;
-                case "long":
-                    handle.set(record, value == null ? 0L : (long) value);
-                    break;
-                case "boolean":
-                    handle.set(record, value != null && (boolean) value);
-                    break;
-                default:
-                    handle.set(record, value);
-                    break;
-            }
-        }
-    }
+                // Unused parameters are filled with the last key
+                for (int i = 0; i < size; i++) {
+                    binder.bindPrimaryKeyValue(chunk.get(Math.min(i, chunk.size() - 1)), ps, i + 1);
+                }
 
-    private <T extends Record> T fromSQL(ResultSet set, ConstructorHandle builder) {
-        try {
-            var params = new ArrayList<>(builder.parameters.size());
-            for (ParameterHandle ph : builder.parameters) {
-                params.add(proxy.getFieldValue(ph.name, ph.type, set));
+                try (var set = ps.executeQuery()) {
+                    while (set.next()) {
+                        T r = mapper.map(set);
+                        result.put(r.getPrimaryKey(), r);
+                    }
+                }
             }
-
-            //noinspection unchecked
-            return (T) builder.handle.invokeWithArguments(params);
-        } catch (Throwable ex) {
+        } catch (SQLException ex) {
             throw new RuntimeException(ex);
+        } finally {
+            closeStatements(statements.values());
         }
-    }
-
-    <T extends Record> T fromSQL(ResultSet set, Class<T> clazz) {
-        var builder = CONSTRUCTOR_MAP.computeIfAbsent(clazz, DAO::cacheConstructorHandle);
 
-        try {
-            if (builder != null) {
-                return fromSQL(set, builder);
-            } else {
-                var columns = COLUMN_MAP.computeIfAbsent(clazz, DAO::computeColumns);
-                if (columns.isEmpty()) {
-                    throw new IllegalStateException("Class " + clazz.getName() + " has no column annotations");
-                }
+        return result;
+    }
 
-                T result = clazz.getDeclaredConstructor().newInstance();
-                fromSQL(set, result, columns);
-                return result;
-            }
-        } catch (Exception ex) {
+    /**
+     * Retrieves records with the specified primary keys using single connection.
+     *
+     * @param <K>   primary key type
+     * @param <T>   type of the record
+     * @param ids   primary keys
+     * @param clazz record class
+     * @return map of records by primary key
+     * @see #getAll(Connection, Collection, Class)
+     */
+    public <K, T extends Record<K>> Map<K, T> getAll(Collection<K> ids, Class<T> clazz) {
+        try (var conn = getDataSource().getConnection()) {
+            return getAll(conn, ids, clazz);
+        } catch (SQLException ex) {
             throw new RuntimeException(ex);
         }
     }
 
     /**
-     * This method creates table for the specified classes according to their annotations.
+     * <p>Retrieves all records loading only the specified columns. Other fields of the returned records are
+     * <code>null</code>, zero or <code>false</code>. Such records are intended for reading, updating them by
+     * {@link #update(Record)} overwrites columns that were not loaded. With dirty tracking enabled
+     * {@link #updateChanged(Connection, Record)} updates only modified columns and is safe to use.</p>
+     * <p>Primary key is always loaded. Lazy columns cannot be projected, they are loaded on access as usual.
+     * SQL statement and row mapper are cached per set of columns.</p>
      *
-     * @param tables list of tables
+     * @param <T>     type of the record
+     * @param conn    connection
+     * @param clazz   record class
+     * @param columns column names
+     * @return list of records
+     * @throws IllegalArgumentException if column does not exist
      */
-    public void createTables(List<Class<? extends Record>> tables) {
-        if (getDataSource() == null) {
-            throw new IllegalStateException("Database not opened");
+    public <T extends Record> List<T> project(Connection conn, Class<T> clazz, String... columns) {
+        var fields = getColumnFields(clazz);
+        var selected = new BitSet(fields.size());
+        for (int i = 0; i < fields.size(); i++) {
+            if (fields.get(i).isAnnotationPresent(PrimaryKey.class)) {
+                selected.set(i);
+            }
         }
+        for (var column : columns) {
+            selected.set(getColumnIndex(clazz, fields, column));
+        }
+
+        var projection = projections.computeIfAbsent(clazz, cl -> new ConcurrentHashMap<>())
+            .computeIfAbsent(selected, key -> {
+                var projected = selected.stream().mapToObj(fields::get).collect(Collectors.toList());
+                return new Projection(buildProjectionSql(clazz, projected),
+                    RowMapper.ofProjection(clazz, projected, proxy, dirtyTracker, this::newLazy));
+            });
+        return project(conn, projection);
+    }
 
+    /**
+     * Retrieves all records loading only the specified columns using new connection.
+     *
+     * @param <T>     type of the record
+     * @param clazz   record class
+     * @param columns column names
+     * @return list of records
+     * @see #project(Connection, Class, String...)
+     */
+    public <T extends Record> List<T> project(Class<T> clazz, String... columns) {
         try (var conn = getDataSource().getConnection()) {
-            createTables(conn, tables);
+            return project(conn, clazz, columns);
         } catch (SQLException ex) {
             throw new RuntimeException(ex);
         }
     }
 
     /**
-     * This method creates table for the specified classes according to their annotations.
+     * <p>Retrieves all rows of the table mapping them into projection class. Projection class declares a subset
+     * of columns of the record class with the same {@link Column} names and field types. Only these columns are
+     * loaded. Projection is created by constructor annotated by {@link RecordBuilder} or, if there is no such
+     * constructor, by no-argument constructor followed by field assignment.</p>
+     * <p>Projection class does not have to implement {@link Record} and is not tracked by entity cache or dirty
+     * tracking. Lazy columns cannot be projected. SQL statement and row mapper are cached per projection class.</p>
      *
-     * @param conn   connection
-     * @param tables list of tables
+     * @param <P>        type of the projection
+     * @param conn       connection
+     * @param clazz      record class
+     * @param projection projection class
+     * @return list of projections
+     * @throws IllegalArgumentException if projection column does not exist or field types do not match
      */
-    public void createTables(Connection conn, List<Class<? extends Record>> tables) {
-        try (var st = conn.createStatement()) {
-            // Step 1: drop tables in reverse order
-            for (int index = tables.size() - 1; index >= 0; index--) {
-                var cl = tables.get(index);
-                if (!cl.isAnnotationPresent(Table.class)) {
-                    throw new IllegalStateException(NOT_ANNOTATED);
-                }
+    public <P> List<P> project(Connection conn, Class<? extends Record> clazz, Class<P> projection) {
+        var compiled = projections.computeIfAbsent(clazz, cl -> new ConcurrentHashMap<>())
+            .computeIfAbsent(projection, key -> compileProjection(clazz, projection));
+        return project(conn, compiled);
+    }
 
-                var table = cl.getAnnotation(Table.class);
-                st.executeUpdate("DROP TABLE IF EXISTS " + table.value());
+    /**
+     * Retrieves all rows of the table mapping them into projection class using new connection.
+     *
+     * @param <P>        type of the projection
+     * @param clazz      record class
+     * @param projection projection class
+     * @return list of projections
+     * @see #project(Connection, Class, Class)
+     */
+    public <P> List<P> project(Class<? extends Record> clazz, Class<P> projection) {
+        try (var conn = getDataSource().getConnection()) {
+            return project(conn, clazz, projection);
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <P> List<P> project(Connection conn, Projection projection) {
+        var mapper = (RowMapper<P>) projection.mapper;
+        var result = new ArrayList<P>();
+        try (var st = statementCache.prepare(conn, projection.sql);
+             var set = st.getStatement().executeQuery())
+        {
+            while (set.next()) {
+                result.add(mapper.map(set));
             }
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+        return result;
+    }
 
-            // Step 2: create new tables in natural order
-            for (Class<?> cl : tables) {
-                var table = cl.getAnnotation(Table.class);
+    private Projection compileProjection(Class<? extends Record> clazz, Class<?> projection) {
+        var fields = getColumnFields(clazz);
 
-                try {
-                    var b = new StringBuilder("CREATE TABLE IF NOT EXISTS ")
-                        .append(table.value())
-                        .append(" (");
+        var projectionFields = Arrays.stream(projection.getDeclaredFields())
+            .filter(field -> field.isAnnotationPresent(Column.class))
+            .collect(Collectors.toList());
+        if (projectionFields.isEmpty()) {
+            throw new IllegalArgumentException("Class " + projection.getName() + " has no column annotations");
+        }
 
-                    var constraints = new ArrayList<String>();
-                    var indexed = new HashSet<Field>();
+        var tableFields = new ArrayList<Field>(projectionFields.size());
+        for (var field : projectionFields) {
+            var tableField = fields.get(getColumnIndex(clazz, fields, field.getAnnotation(Column.class).value()));
+            if (tableField.getType() != field.getType()) {
+                throw new IllegalArgumentException("Type of " + projection.getName() + "." + field.getName()
+                    + " does not match column type");
+            }
+            tableFields.add(tableField);
+        }
 
-                    boolean first = true;
-                    for (var field : cl.getDeclaredFields()) {
-                        if (field.isAnnotationPresent(Column.class)) {
-                            var column = field.getAnnotation(Column.class);
-                            var fName = column.value();
+        return new Projection(buildProjectionSql(clazz, tableFields),
+            RowMapper.ofProjection(projection, projectionFields, proxy, null, null));
+    }
 
-                            var getterType = field.getType();
-                            var typeName = getterType.isEnum() ?
-                                TYPE_ENUM : getterType.getTypeName();
+    private String buildProjectionSql(Class<? extends Record> clazz, List<Field> fields) {
+        return "SELECT " + fields.stream()
+            .map(field -> proxy.getSelectColumnString(field))
+            .collect(Collectors.joining(",")) +
+            " FROM " + Record.getTableName(clazz);
+    }
 
-                            if (!first) {
-                                b.append(",");
-                            }
-                            first = false;
+    private static int getColumnIndex(Class<? extends Record> clazz, List<Field> fields, String column) {
+        for (int i = 0; i < fields.size(); i++) {
+            if (fields.get(i).getAnnotation(Column.class).value().equals(column)) {
+                if (isDeferred(fields.get(i))) {
+                    throw new IllegalArgumentException("Column " + column + " is not selected");
+                }
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Class " + clazz.getName() + " does not have column " + column);
+    }
 
-                            b.append(fName).append(" ")
-                                .append(proxy.getColumnString(column, field.getAnnotation(PrimaryKey.class),
-                                    field.getAnnotation(ForeignKey.class), typeName, constraints));
+    /**
+     * <p>Loads lazy column of the records by a single <code>SELECT ... WHERE pk IN (...)</code> statement per
+     * {@value #MAX_IN_LIST_SIZE} records. Values that are already loaded are not reloaded. All records must be of
+     * the same class.</p>
+     *
+     * @param <K>     primary key type
+     * @param <T>     type of the record
+     * @param conn    connection
+     * @param records records
+     * @param column  name of the lazy column
+     * @throws IllegalArgumentException if column does not exist or is not lazy
+     */
+    @SuppressWarnings("unchecked")
+    public <K, T extends Record<K>> void load(Connection conn, List<T> records, String column) {
+        if (records.isEmpty()) {
+            return;
+        }
 
-                            if (field.isAnnotationPresent(Index.class)) {
-                                indexed.add(field);
-                            }
-                        }
-                    }
+        var clazz = records.get(0).getClass();
+        var field = getColumnFields(clazz).stream()
+            .filter(f -> f.getAnnotation(Column.class).value().equals(column))
+            .findAny()
+            .orElseThrow(() -> new IllegalArgumentException("Class " + clazz.getName()
+                + " does not have column " + column));
+        if (!isLazy(field)) {
+            throw new IllegalArgumentException("Column " + column + " is not lazy");
+        }
 
-                    if (!constraints.isEmpty()) {
-                        b.append(",");
-                        b.append(String.join(",", constraints));
-                    }
+        var handle = getColumnHandles(clazz).get(column);
+        var unloaded = new HashMap<Object, List<Lazy<Object>>>();
+        for (var record : records) {
+            var lazy = (Lazy<Object>) handle.get(record);
+            if (lazy != null && !lazy.isLoaded()) {
+                unloaded.computeIfAbsent(record.getPrimaryKey(), k -> new ArrayList<>()).add(lazy);
+            }
+        }
 
-                    b.append(")");
+        if (unloaded.isEmpty()) {
+            return;
+        }
 
-                    st.executeUpdate(b.toString());
+        var values = loadLazyValues(conn, clazz, field, unloaded.keySet());
+        unloaded.forEach((key, list) -> {
+            var value = values.get(key);
+            list.forEach(lazy -> lazy.set(value));
+        });
+    }
 
-                    // Create indexes
-                    for (var field : indexed) {
-                        st.executeUpdate(proxy.buildIndex(table, field));
+    /**
+     * Loads lazy column of the records using new connection.
+     *
+     * @param <K>     primary key type
+     * @param <T>     type of the record
+     * @param records records
+     * @param column  name of the lazy column
+     * @see #load(Connection, List, String)
+     */
+    public <K, T extends Record<K>> void load(List<T> records, String column) {
+        try (var conn = getDataSource().getConnection()) {
+            load(conn, records, column);
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Creates value of the column that is not selected: unloaded {@link Lazy} or stored {@link BlobRef}.
+     */
+    private Object newLazy(Field field, Object primaryKey) {
+        @SuppressWarnings("unchecked")
+        var clazz = (Class<? extends Record>) field.getDeclaringClass();
+        if (field.getType() == BlobRef.class) {
+            return new BlobRef(() -> openBlobStream(clazz, field, primaryKey), -1, true);
+        }
+
+        return new Lazy<>(() -> {
+            try (var conn = getDataSource().getConnection()) {
+                return loadLazyValues(conn, clazz, field, List.of(primaryKey)).get(primaryKey);
+            } catch (SQLException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+    }
+
+    private Map<Object, Object> loadLazyValues(Connection conn, Class<? extends Record> clazz, Field field,
+                                               Collection<Object> ids)
+    {
+        var keys = new ArrayList<>(ids);
+        var binder = getBinder(clazz);
+        var keyReader = proxy.getColumnReader(findPrimaryKey(clazz).field.getType());
+        var valueReader = proxy.getColumnReader(getValueType(field));
+
+        var result = new HashMap<Object, Object>();
+        var statements = new HashMap<Integer, StatementCache.Entry>();
+        try {
+            for (int from = 0; from < keys.size(); from += MAX_IN_LIST_SIZE) {
+                var chunk = keys.subList(from, Math.min(from + MAX_IN_LIST_SIZE, keys.size()));
+                var size = getInListSize(chunk.size());
+
+                var st = statements.get(size);
+                if (st == null) {
+                    st = statementCache.prepare(conn, getLazySelectSql(clazz, field, size));
+                    statements.put(size, st);
+                }
+                var ps = st.getStatement();
+
+                // Unused parameters are filled with the last key
+                for (int i = 0; i < size; i++) {
+                    binder.bindPrimaryKeyValue(chunk.get(Math.min(i, chunk.size() - 1)), ps, i + 1);
+                }
+
+                try (var set = ps.executeQuery()) {
+                    while (set.next()) {
+                        result.put(keyReader.read(set, 1), valueReader.read(set, 2));
                     }
-                } catch (SecurityException | SQLException ex) {
-                    throw new RuntimeException(ex);
                 }
             }
         } catch (SQLException ex) {
             throw new RuntimeException(ex);
+        } finally {
+            closeStatements(statements.values());
         }
+        return result;
     }
 
-    String getSelectAllSql(Class<? extends Record> recordClass) {
-        return selectAllSql.computeIfAbsent(recordClass, clazz -> {
-            var table = clazz.getAnnotation(Table.class);
-            if (table == null) {
-                throw new IllegalStateException(CLASS_NOT_ANNOTATED + clazz.getName());
+    /**
+     * Opens stream of the binary column value. Result set is retrieved by streaming statement, statement and
+     * connection are closed together with the stream.
+     */
+    private InputStream openBlobStream(Class<? extends Record> clazz, Field field, Object primaryKey)
+        throws IOException
+    {
+        var resources = new ArrayList<AutoCloseable>();
+        try {
+            var conn = getDataSource().getConnection();
+            resources.add(conn);
+            var st = proxy.prepareStreamingStatement(conn, getLazySelectSql(clazz, field, 1), 0);
+            resources.add(0, st);
+            getBinder(clazz).bindPrimaryKeyValue(primaryKey, st, 1);
+            var set = st.executeQuery();
+            resources.add(0, set);
+
+            var stream = set.next() ? set.getBinaryStream(2) : null;
+            if (stream != null) {
+                return new BlobInputStream(stream, resources.toArray(new AutoCloseable[0]));
             }
+        } catch (SQLException ex) {
+            closeQuietly(resources, ex);
+            throw new IOException(ex);
+        } catch (RuntimeException ex) {
+            closeQuietly(resources, ex);
+            throw ex;
+        }
 
-            var columnString = Arrays.stream(clazz.getDeclaredFields())
-                .filter(field -> field.isAnnotationPresent(Column.class))
-                .map(field -> proxy.getSelectColumnString(field))
-                .collect(Collectors.joining(","));
+        closeQuietly(resources, null);
+        return null;
+    }
 
-            if (columnString.isEmpty()) {
-                throw new IllegalStateException("No fields");
+    private static void closeQuietly(List<AutoCloseable> resources, Exception exception) {
+        for (var resource : resources) {
+            try {
+                resource.close();
+            } catch (Exception ex) {
+                if (exception != null) {
+                    exception.addSuppressed(ex);
+                }
             }
-
-            return "SELECT " + columnString + " FROM " + table.value();
-        });
+        }
     }
 
-    String getSelectByIdSql(Class<? extends Record> recordClass) {
-        return selectByIdSql.computeIfAbsent(recordClass, clazz ->
-            getSelectAllSql(clazz) +
-                " WHERE " +
-                proxy.getWhereColumnString(findPrimaryKey(clazz).field) + "=?");
+    String getLazySelectSql(Class<? extends Record> clazz, Field field, int size) {
+        return lazySelectSql.computeIfAbsent(field, f -> new ConcurrentHashMap<>())
+            .computeIfAbsent(size, s -> {
+                var primaryKey = findPrimaryKey(clazz).field;
+                return "SELECT " + proxy.getSelectColumnString(primaryKey) + "," + proxy.getSelectColumnString(field)
+                    + " FROM " + Record.getTableName(clazz)
+                    + " WHERE " + proxy.getWhereColumnString(primaryKey)
+                    + " IN (" + String.join(",", Collections.nCopies(s, proxy.getWhereParameterPattern(primaryKey)))
+                    + ")";
+            });
     }
 
-    private String getInsertSQL(Record record) {
-        return insertSql.computeIfAbsent(record.getClass(), clazz -> {
-            var b = new StringBuilder("INSERT INTO ");
+    /**
+     * Creates query builder for the record class.
+     *
+     * @param <T>   type of the record
+     * @param clazz record class
+     * @return query builder
+     * @see Query
+     */
+    public <T extends Record> Query<T> select(Class<T> clazz) {
+        if (!clazz.isAnnotationPresent(Table.class)) {
+            throw new IllegalStateException(NOT_ANNOTATED);
+        }
+        return new Query<>(this, clazz);
+    }
 
-            var table = clazz.getAnnotation(Table.class);
-            if (table == null) {
-                throw new IllegalStateException("Class " + clazz.getName() + " is not properly annotated");
-            }
+    <T extends Record> List<T> select(Connection conn, Query<T> query, int limit) {
+        var clazz = query.getRecordClass();
+        if (indexedLookupsOnly && !query.getConditions().isEmpty()
+            && query.getConditions().stream().noneMatch(c -> isIndexed(c.getField())))
+        {
+            throw new IllegalArgumentException("Query on " + clazz.getName() + " does not use indexed columns");
+        }
 
-            b.append(table.value()).append(" (");
+        var compiled = getQueryStatement(query, limit);
 
-            int fCount = 0;
+        var result = new ArrayList<T>();
+        try (var st = statementCache.prepare(conn, compiled.getSql())) {
+            var ps = st.getStatement();
+            query.bind(ps, compiled.getWriters(), limit);
 
-            var valueString = new StringBuilder();
-            try {
-                for (var field : clazz.getDeclaredFields()) {
-                    var column = field.getAnnotation(Column.class);
-                    if (column != null) {
-                        if (fCount != 0) {
-                            b.append(",");
-                            valueString.append(",");
-                        }
-                        b.append(column.value());
-                        valueString.append(proxy.getInsertColumnPattern(field));
-                        fCount++;
-                    }
+            var mapper = getRowMapper(clazz);
+            try (var set = ps.executeQuery()) {
+                while (set.next()) {
+                    result.add(mapper.map(set));
                 }
-            } catch (SecurityException ex) {
-                throw new RuntimeException(ex);
             }
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+        return result;
+    }
 
-            if (fCount == 0) {
-                throw new IllegalStateException("No fields");
-            }
+    /**
+     * <p>Retrieves records having the specified value of the column. Null value matches records where the
+     * column is <code>NULL</code>.</p>
+     * <p>Lookup is intended for columns annotated by {@link Index}, {@link Column#unique()} or {@link PrimaryKey}.
+     * Other columns are accepted unless {@link #setIndexedLookupsOnly(boolean)} is enabled. Statements are cached
+     * the same way as {@link Query} statements.</p>
+     *
+     * @param <T>    type of the record
+     * @param conn   connection
+     * @param clazz  record class
+     * @param column column name
+     * @param value  column value
+     * @return list of records
+     * @throws IllegalArgumentException if column does not exist or value does not match the column type
+     */
+    public <T extends Record> List<T> findBy(Connection conn, Class<T> clazz, String column, Object value) {
+        var query = value == null ?
+            select(clazz).where(column, Query.Operator.IS_NULL) :
+            select(clazz).where(column, Query.Operator.EQ, value);
+        return query.list(conn);
+    }
 
-            b.append(") VALUES (")
-                .append(valueString)
-                .append(")");
+    /**
+     * Retrieves records having the specified value of the column using new connection.
+     *
+     * @param <T>    type of the record
+     * @param clazz  record class
+     * @param column column name
+     * @param value  column value
+     * @return list of records
+     * @see #findBy(Connection, Class, String, Object)
+     */
+    public <T extends Record> List<T> findBy(Class<T> clazz, String column, Object value) {
+        try (var conn = getDataSource().getConnection()) {
+            return findBy(conn, clazz, column, value);
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
 
-            return b.toString();
-        });
+    /**
+     * Retrieves record having the specified value of the unique column, i.e. primary key or column annotated by
+     * {@link Column#unique()} or unique {@link Index}.
+     *
+     * @param <T>    type of the record
+     * @param conn   connection
+     * @param clazz  record class
+     * @param column column name
+     * @param value  column value, must not be null
+     * @return record
+     * @throws IllegalArgumentException if column is not unique or value does not match the column type
+     */
+    public <T extends Record> Optional<T> findUniqueBy(Connection conn, Class<T> clazz, String column, Object value) {
+        var query = select(clazz).where(column, Query.Operator.EQ, value);
+        if (!isUnique(query.getConditions().get(0).getField())) {
+            throw new IllegalArgumentException("Column " + column + " is not unique");
+        }
+        return query.first(conn);
     }
 
-    private String getUpdateSQL(Record record) {
-        return updateSql.computeIfAbsent(record.getClass(), clazz -> {
-            var b = new StringBuilder("update ");
+    /**
+     * Retrieves record having the specified value of the unique column using new connection.
+     *
+     * @param <T>    type of the record
+     * @param clazz  record class
+     * @param column column name
+     * @param value  column value, must not be null
+     * @return record
+     * @see #findUniqueBy(Connection, Class, String, Object)
+     */
+    public <T extends Record> Optional<T> findUniqueBy(Class<T> clazz, String column, Object value) {
+        try (var conn = getDataSource().getConnection()) {
+            return findUniqueBy(conn, clazz, column, value);
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
 
-            var table = clazz.getAnnotation(Table.class);
-            if (table == null) {
-                throw new IllegalStateException(NOT_ANNOTATED);
+    /**
+     * Returns true if lookups are restricted to indexed columns.
+     *
+     * @return true if lookups are restricted to indexed columns
+     */
+    public boolean isIndexedLookupsOnly() {
+        return indexedLookupsOnly;
+    }
+
+    /**
+     * Restricts lookups to indexed columns. When enabled, {@link #findBy(Connection, Class, String, Object)} and
+     * {@link Query} with conditions throw {@link IllegalArgumentException} unless at least one condition uses
+     * primary key, unique or indexed column. This allows to detect full table scans early.
+     *
+     * @param indexedLookupsOnly true to restrict lookups to indexed columns
+     */
+    public void setIndexedLookupsOnly(boolean indexedLookupsOnly) {
+        this.indexedLookupsOnly = indexedLookupsOnly;
+    }
+
+    static boolean isIndexed(Field field) {
+        return field.isAnnotationPresent(Index.class) || isUnique(field);
+    }
+
+    static boolean isUnique(Field field) {
+        var index = field.getAnnotation(Index.class);
+        return field.isAnnotationPresent(PrimaryKey.class)
+            || field.getAnnotation(Column.class).unique()
+            || (index != null && index.unique());
+    }
+
+    Query.Statement getQueryStatement(Query<?> query, int limit) {
+        return queries.computeIfAbsent(query.getRecordClass(), clazz -> new ConcurrentHashMap<>())
+            .computeIfAbsent(query.getShape(limit), shape -> buildQueryStatement(query, limit));
+    }
+
+    private Query.Statement buildQueryStatement(Query<?> query, int limit) {
+        var sql = new StringBuilder(getSelectAllSql(query.getRecordClass()));
+        var writers = new ArrayList<DAOProxy.ParameterWriter>();
+
+        var conditions = query.getConditions();
+        for (int i = 0; i < conditions.size(); i++) {
+            var condition = conditions.get(i);
+            var field = condition.getField();
+            var operator = condition.getOperator();
+
+            sql.append(i == 0 ? " WHERE " : " AND ")
+                .append(proxy.getWhereColumnString(field))
+                .append(operator.getSql());
+
+            var count = condition.getParameterCount();
+            if (count == 0) {
+                continue;
+            }
+
+            var pattern = proxy.getWhereParameterPattern(field);
+            if (operator == Query.Operator.IN) {
+                sql.append("(").append(String.join(",", Collections.nCopies(count, pattern))).append(")");
+            } else {
+                sql.append(pattern);
+            }
+
+            var writer = proxy.getParameterWriter(field.getType());
+            writers.addAll(Collections.nCopies(count, writer));
+        }
+
+        var orders = query.getOrders();
+        for (int i = 0; i < orders.size(); i++) {
+            var order = orders.get(i);
+            sql.append(i == 0 ? " ORDER BY " : ",")
+                .append(order.getField().getAnnotation(Column.class).value())
+                .append(order.isDescending() ? " DESC" : "");
+        }
+
+        if (limit > 0) {
+            sql.append(" LIMIT ?");
+            if (query.getOffset() != 0) {
+                sql.append(" OFFSET ?");
             }
+        }
 
-            b.append(table.value()).append(" set ");
+        return new Query.Statement(sql.toString(), writers.toArray(new DAOProxy.ParameterWriter[0]));
+    }
 
-            int fCount = 0;
+    static int getInListSize(int count) {
+        return count <= 1 ? 1 : Integer.highestOneBit(count - 1) << 1;
+    }
 
+    private static void closeStatements(Collection<StatementCache.Entry> statements) {
+        RuntimeException exception = null;
+        for (var st : statements) {
             try {
-                for (var field : record.getClass().getDeclaredFields()) {
-                    var column = field.getAnnotation(Column.class);
-                    if (column != null && field.getAnnotation(PrimaryKey.class) == null) {
-                        if (fCount != 0) {
-                            b.append(", ");
-                        }
-                        b.append(column.value())
-                            .append("=")
-                            .append(proxy.getUpdateColumnPattern(field));
-                        fCount++;
-                    }
+                st.close();
+            } catch (SQLException ex) {
+                if (exception == null) {
+                    exception = new RuntimeException(ex);
+                } else {
+                    exception.addSuppressed(ex);
                 }
-            } catch (SecurityException ex) {
-                throw new RuntimeException(ex);
             }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * <p>Retrieves a page of records ordered by primary key using keyset pagination, i.e. records with primary key
+     * greater than the specified one. Unlike OFFSET based paging cost of each page does not depend on its position
+     * in the table.</p>
+     *
+     * @param <K>      primary key type
+     * @param <T>      type of the record
+     * @param conn     connection
+     * @param clazz    record class
+     * @param afterKey primary key of the last record of the previous page, null for the first page
+     * @param limit    maximum number of records in the page
+     * @return list of records
+     */
+    public <K, T extends Record<K>> List<T> page(Connection conn, Class<T> clazz, K afterKey, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page size must be >= 1");
+        }
+
+        if (!clazz.isAnnotationPresent(Table.class)) {
+            throw new IllegalStateException(NOT_ANNOTATED);
+        }
 
-            if (fCount == 0) {
-                throw new IllegalStateException("No fields");
+        var result = new ArrayList<T>(limit);
+
+        var sql = afterKey == null ? getSelectFirstPageSql(clazz) : getSelectPageSql(clazz);
+        try (var st = statementCache.prepare(conn, sql)) {
+            var ps = st.getStatement();
+            int index = 1;
+            if (afterKey != null) {
+                getBinder(clazz).bindPrimaryKeyValue(afterKey, ps, index++);
             }
+            ps.setInt(index, limit);
 
-            var primaryKeyField = findPrimaryKey(clazz);
-            b.append(" WHERE ")
-                .append(proxy.getWhereColumnString(primaryKeyField.field))
-                .append("=?");
+            var mapper = getRowMapper(clazz);
+            try (var set = ps.executeQuery()) {
+                while (set.next()) {
+                    result.add(mapper.map(set));
+                }
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+        return result;
+    }
 
-            return b.toString();
-        });
+    /**
+     * Retrieves a page of records ordered by primary key using keyset pagination.
+     *
+     * @param <K>      primary key type
+     * @param <T>      type of the record
+     * @param clazz    record class
+     * @param afterKey primary key of the last record of the previous page, null for the first page
+     * @param limit    maximum number of records in the page
+     * @return list of records
+     * @see #page(Connection, Class, Object, int)
+     */
+    public <K, T extends Record<K>> List<T> page(Class<T> clazz, K afterKey, int limit) {
+        try (var conn = getDataSource().getConnection()) {
+            return page(conn, clazz, afterKey, limit);
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Returns pages of all records ordered by primary key. Each page is retrieved on demand by
+     * {@link #page(Class, Object, int)} starting after the last record of the previous page. The last page may
+     * contain fewer records than the limit, empty pages are never returned.
+     *
+     * @param <K>   primary key type
+     * @param <T>   type of the record
+     * @param clazz record class
+     * @param limit maximum number of records in the page
+     * @return iterable over pages
+     */
+    public <K, T extends Record<K>> Iterable<List<T>> pages(Class<T> clazz, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page size must be >= 1");
+        }
+
+        return () -> new Iterator<>() {
+            private K lastKey;
+            private List<T> nextPage;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (nextPage == null && !done) {
+                    var page = page(clazz, lastKey, limit);
+                    if (page.isEmpty()) {
+                        done = true;
+                    } else {
+                        nextPage = page;
+                        lastKey = page.get(page.size() - 1).getPrimaryKey();
+                        done = page.size() < limit;
+                    }
+                }
+                return nextPage != null;
+            }
+
+            @Override
+            public List<T> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                var page = nextPage;
+                nextPage = null;
+                return page;
+            }
+        };
+    }
+
+    /**
+     * Returns fetch size used by streaming queries.
+     *
+     * @return fetch size, 0 means driver default
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Sets fetch size used by streaming queries, see {@link #stream(Connection, Class)}. For MySQL default value 0
+     * turns on row-by-row streaming mode of the driver.
+     *
+     * @param fetchSize fetch size, 0 means driver default
+     * @throws IllegalArgumentException if fetch size is negative
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("Fetch size must be >= 0");
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * <p>Returns lazily populated stream of all records of the specified type. Records are created as the underlying
+     * result set is iterated, so memory consumption does not depend on the table size.</p>
+     * <p>Returned stream must be closed after use, e.g. by try-with-resources statement. Closing the stream closes
+     * the result set and the statement but not the connection.</p>
+     *
+     * @param <T>   type of the record
+     * @param conn  connection
+     * @param clazz record class
+     * @return stream of records
+     */
+    public <T extends Record> Stream<T> stream(Connection conn, Class<T> clazz) {
+        if (!clazz.isAnnotationPresent(Table.class)) {
+            throw new IllegalStateException(NOT_ANNOTATED);
+        }
+
+        var mapper = getRowMapper(clazz);
+
+        try {
+            var st = proxy.prepareStreamingStatement(conn, getSelectAllSql(clazz), fetchSize);
+            try {
+                var set = st.executeQuery();
+                return StreamSupport.stream(new ResultSetSpliterator<>(set, mapper), false)
+                    .onClose(() -> {
+                        try (st; set) {
+                            // Close result set and statement
+                        } catch (SQLException ex) {
+                            throw new RuntimeException(ex);
+                        }
+                    });
+            } catch (SQLException | RuntimeException ex) {
+                st.close();
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * <p>Returns lazily populated stream of all records of the specified type using new connection.</p>
+     * <p>Returned stream must be closed after use, e.g. by try-with-resources statement. Closing the stream closes
+     * the connection.</p>
+     *
+     * @param <T>   type of the record
+     * @param clazz record class
+     * @return stream of records
+     */
+    public <T extends Record> Stream<T> stream(Class<T> clazz) {
+        try {
+            var conn = getDataSource().getConnection();
+            try {
+                return stream(conn, clazz).onClose(() -> {
+                    try {
+                        conn.close();
+                    } catch (SQLException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                });
+            } catch (RuntimeException ex) {
+                conn.close();
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Performs an action for each record of the specified type. Records are not accumulated in memory.
+     *
+     * @param <T>    type of the record
+     * @param conn   connection
+     * @param clazz  record class
+     * @param action action to perform
+     */
+    public <T extends Record> void forEach(Connection conn, Class<T> clazz, Consumer<? super T> action) {
+        try (var stream = stream(conn, clazz)) {
+            stream.forEach(action);
+        }
+    }
+
+    /**
+     * Performs an action for each record of the specified type. Records are not accumulated in memory.
+     *
+     * @param <T>    type of the record
+     * @param clazz  record class
+     * @param action action to perform
+     */
+    public <T extends Record> void forEach(Class<T> clazz, Consumer<? super T> action) {
+        try (var stream = stream(clazz)) {
+            stream.forEach(action);
+        }
+    }
+
+    static Map<String, VarHandle> computeColumns(Class<?> clazz) {
+        try {
+            var lookup = MethodHandles.privateLookupIn(clazz, MethodHandles.lookup());
+
+            var result = new HashMap<String, VarHandle>();
+            for (var field : clazz.getDeclaredFields()) {
+                var column = field.getAnnotation(Column.class);
+                if (column != null) {
+                    var handle = lookup.unreflectVarHandle(field);
+                    result.put(column.value(), handle);
+                }
+            }
+            return result;
+        } catch (IllegalAccessException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+
+    static Map<String, VarHandle> getColumnHandles(Class<?> clazz) {
+        return COLUMN_MAP.computeIfAbsent(clazz, DAO::computeColumns);
+    }
+
+    /**
+     * Returns fields annotated with {@link Column} in the order they appear in generated SQL statements.
+     *
+     * @param clazz record class
+     * @return list of column fields
+     */
+    static List<Field> getColumnFields(Class<? extends Record> clazz) {
+        return COLUMN_FIELD_MAP.computeIfAbsent(clazz, cl -> Arrays.stream(cl.getDeclaredFields())
+            .filter(field -> field.isAnnotationPresent(Column.class))
+            .collect(Collectors.toUnmodifiableList()));
+    }
+
+    /**
+     * Returns column fields included into SELECT statements, i.e. all columns except lazy and {@link BlobRef} ones,
+     * in the order of {@link #getColumnFields(Class)}.
+     *
+     * @param clazz record class
+     * @return list of selected column fields
+     * @throws IllegalStateException if lazy columns are not properly declared
+     */
+    static List<Field> getSelectFields(Class<? extends Record> clazz) {
+        return SELECT_FIELD_MAP.computeIfAbsent(clazz, cl -> {
+            var fields = getColumnFields(cl);
+            var selected = fields.stream()
+                .filter(field -> !isDeferred(field))
+                .collect(Collectors.toList());
+
+            if (selected.size() != fields.size()) {
+                var primaryKey = fields.stream().filter(f -> f.isAnnotationPresent(PrimaryKey.class)).findAny();
+                if (primaryKey.isEmpty() || isDeferred(primaryKey.get())) {
+                    throw new IllegalStateException("Lazy and BlobRef columns require primary key in "
+                        + cl.getName());
+                }
+            }
+            return List.copyOf(selected);
+        });
+    }
+
+    static boolean isLazy(Field field) {
+        return field.getAnnotation(Column.class).lazy();
+    }
+
+    /**
+     * Returns true if column is not included into SELECT statements, i.e. it is lazy or {@link BlobRef} column.
+     *
+     * @param field column field
+     * @return true if column is not selected
+     */
+    static boolean isDeferred(Field field) {
+        return isLazy(field) || field.getType() == BlobRef.class;
+    }
+
+    /**
+     * Returns type of the column value: type argument of {@link Lazy} for lazy columns, field type otherwise.
+     *
+     * @param field column field
+     * @return type of the column value
+     * @throws IllegalStateException if lazy column is not properly declared
+     */
+    static Class<?> getValueType(Field field) {
+        var lazy = isLazy(field);
+        if (!lazy && field.getType() != Lazy.class) {
+            return field.getType();
+        }
+
+        if (lazy && field.getGenericType() instanceof ParameterizedType) {
+            var argument = ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+            if (field.getType() == Lazy.class && argument instanceof Class) {
+                return (Class<?>) argument;
+            }
+        }
+        throw new IllegalStateException("Field " + field.getName()
+            + " must be declared as lazy column of type Lazy<V>");
+    }
+
+    static ConstructorHandle getConstructorHandle(Class<?> clazz) {
+        return CONSTRUCTOR_MAP.computeIfAbsent(clazz, DAO::cacheConstructorHandle);
+    }
+
+    @SuppressWarnings("unchecked")
+    <T extends Record> RowMapper<T> getRowMapper(Class<T> clazz) {
+        return (RowMapper<T>) rowMappers.computeIfAbsent(clazz,
+            cl -> RowMapper.of(clazz, getSelectFields(clazz), proxy, dirtyTracker, this::newLazy));
+    }
+
+    <T extends Record> T fromSQL(ResultSet set, Class<T> clazz) {
+        try {
+            return getRowMapper(clazz).map(set);
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * This method creates table for the specified classes according to their annotations.
+     *
+     * @param tables list of tables
+     */
+    public void createTables(List<Class<? extends Record>> tables) {
+        if (getDataSource() == null) {
+            throw new IllegalStateException("Database not opened");
+        }
+
+        try (var conn = getDataSource().getConnection()) {
+            createTables(conn, tables);
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * This method creates table for the specified classes according to their annotations.
+     *
+     * @param conn   connection
+     * @param tables list of tables
+     */
+    public void createTables(Connection conn, List<Class<? extends Record>> tables) {
+        try (var st = conn.createStatement()) {
+            // Step 1: drop tables in reverse order
+            for (int index = tables.size() - 1; index >= 0; index--) {
+                var cl = tables.get(index);
+                if (!cl.isAnnotationPresent(Table.class)) {
+                    throw new IllegalStateException(NOT_ANNOTATED);
+                }
+
+                var table = cl.getAnnotation(Table.class);
+                st.executeUpdate("DROP TABLE IF EXISTS " + table.value());
+            }
+
+            // Step 2: create new tables in natural order
+            for (Class<?> cl : tables) {
+                var table = cl.getAnnotation(Table.class);
+
+                try {
+                    var b = new StringBuilder("CREATE TABLE IF NOT EXISTS ")
+                        .append(table.value())
+                        .append(" (");
+
+                    var constraints = new ArrayList<String>();
+                    var indexed = new HashSet<Field>();
+
+                    boolean first = true;
+                    for (var field : cl.getDeclaredFields()) {
+                        if (field.isAnnotationPresent(Column.class)) {
+                            var column = field.getAnnotation(Column.class);
+                            var fName = column.value();
+
+                            var getterType = getValueType(field);
+                            var typeName = getterType.isEnum() ?
+                                TYPE_ENUM : getterType.getTypeName();
+
+                            if (!first) {
+                                b.append(",");
+                            }
+                            first = false;
+
+                            b.append(fName).append(" ")
+                                .append(proxy.getColumnString(column, field.getAnnotation(PrimaryKey.class),
+                                    field.getAnnotation(ForeignKey.class), typeName, constraints));
+
+                            if (field.isAnnotationPresent(Index.class)) {
+                                indexed.add(field);
+                            }
+                        }
+                    }
+
+                    if (!constraints.isEmpty()) {
+                        b.append(",");
+                        b.append(String.join(",", constraints));
+                    }
+
+                    b.append(")");
+
+                    st.executeUpdate(b.toString());
+
+                    // Create indexes
+                    for (var field : indexed) {
+                        st.executeUpdate(proxy.buildIndex(table, field));
+                    }
+                } catch (SecurityException | SQLException ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            invalidateAll(conn, tables);
+        }
+    }
+
+    String getSelectAllSql(Class<? extends Record> recordClass) {
+        return selectAllSql.computeIfAbsent(recordClass, this::buildSelectAllSql);
+    }
+
+    String buildSelectAllSql(Class<? extends Record> clazz) {
+        var table = clazz.getAnnotation(Table.class);
+        if (table == null) {
+            throw new IllegalStateException(CLASS_NOT_ANNOTATED + clazz.getName());
+        }
+
+        var columnString = getSelectFields(clazz).stream()
+            .map(field -> proxy.getSelectColumnString(field))
+            .collect(Collectors.joining(","));
+
+        if (columnString.isEmpty()) {
+            throw new IllegalStateException("No fields");
+        }
+
+        return "SELECT " + columnString + " FROM " + table.value();
+    }
+
+    String getSelectByIdSql(Class<? extends Record> recordClass) {
+        return selectByIdSql.computeIfAbsent(recordClass, this::buildSelectByIdSql);
+    }
+
+    String buildSelectByIdSql(Class<? extends Record> clazz) {
+        return buildSelectAllSql(clazz) +
+            " WHERE " +
+            getPrimaryKeyCondition(clazz, "=");
+    }
+
+    String getSelectByIdsSql(Class<? extends Record> recordClass, int size) {
+        return selectByIdsSql.computeIfAbsent(recordClass, clazz -> new ConcurrentHashMap<>())
+            .computeIfAbsent(size, s -> {
+                var primaryKey = findPrimaryKey(recordClass).field;
+                return getSelectAllSql(recordClass) +
+                    " WHERE " + proxy.getWhereColumnString(primaryKey) +
+                    " IN (" + String.join(",", Collections.nCopies(s, proxy.getWhereParameterPattern(primaryKey))) +
+                    ")";
+            });
+    }
+
+    private String getPrimaryKeyCondition(Class<? extends Record> clazz, String operator) {
+        var primaryKey = findPrimaryKey(clazz).field;
+        return proxy.getWhereColumnString(primaryKey) + operator + proxy.getWhereParameterPattern(primaryKey);
+    }
+
+    String getSelectFirstPageSql(Class<? extends Record> recordClass) {
+        return selectFirstPageSql.computeIfAbsent(recordClass, clazz ->
+            getSelectAllSql(clazz) +
+                " ORDER BY " + findPrimaryKey(clazz).field.getAnnotation(Column.class).value() +
+                " LIMIT ?");
+    }
+
+    String getSelectPageSql(Class<? extends Record> recordClass) {
+        return selectPageSql.computeIfAbsent(recordClass, clazz -> {
+            var primaryKey = findPrimaryKey(clazz).field;
+            return getSelectAllSql(clazz) +
+                " WHERE " + getPrimaryKeyCondition(clazz, ">") +
+                " ORDER BY " + primaryKey.getAnnotation(Column.class).value() +
+                " LIMIT ?";
+        });
+    }
+
+    private String getInsertSQL(Record record) {
+        return getInsertSQL(record.getClass());
+    }
+
+    private String getInsertSQL(Class<? extends Record> recordClass) {
+        return insertSql.computeIfAbsent(recordClass, this::buildInsertSql);
+    }
+
+    String buildInsertSql(Class<? extends Record> clazz) {
+        return buildInsertSql(clazz, false);
+    }
+
+    private String getGeneratedInsertSql(Class<? extends Record> recordClass) {
+        return generatedInsertSql.computeIfAbsent(recordClass, clazz -> buildInsertSql(clazz, true));
+    }
+
+    private String buildInsertSql(Class<? extends Record> clazz, boolean skipPrimaryKey) {
+        var b = new StringBuilder("INSERT INTO ");
+
+        var table = clazz.getAnnotation(Table.class);
+        if (table == null) {
+            throw new IllegalStateException("Class " + clazz.getName() + " is not properly annotated");
+        }
+
+        b.append(table.value()).append(" (");
+
+        int fCount = 0;
+
+        var valueString = new StringBuilder();
+        for (var field : getColumnFields(clazz)) {
+            if (skipPrimaryKey && field.isAnnotationPresent(PrimaryKey.class)) {
+                continue;
+            }
+            var column = field.getAnnotation(Column.class);
+            if (fCount != 0) {
+                b.append(",");
+                valueString.append(",");
+            }
+            b.append(column.value());
+            valueString.append(proxy.getInsertColumnPattern(field));
+            fCount++;
+        }
+
+        if (fCount == 0) {
+            throw new IllegalStateException("No fields");
+        }
+
+        b.append(") VALUES (")
+            .append(valueString)
+            .append(")");
+
+        return b.toString();
+    }
+
+    private String getUpsertSQL(Connection conn, Class<? extends Record> recordClass) throws SQLException {
+        setServerVersion(conn);
+        return getUpsertSQL(recordClass);
+    }
+
+    private String getUpsertSQL(Class<? extends Record> recordClass) {
+        return upsertSql.computeIfAbsent(recordClass, clazz -> getInsertSQL(clazz) + buildUpsertClause(clazz));
+    }
+
+    String buildUpsertClause(Class<? extends Record> clazz) {
+        var primaryKey = findPrimaryKey(clazz).field.getAnnotation(Column.class).value();
+
+        var columns = new ArrayList<String>();
+        for (var field : getColumnFields(clazz)) {
+            if (!field.isAnnotationPresent(PrimaryKey.class)) {
+                columns.add(field.getAnnotation(Column.class).value());
+            }
+        }
+
+        return proxy.getUpsertClause(primaryKey, columns);
+    }
+
+    private String getUpdateSQL(Record record) {
+        return updateSql.computeIfAbsent(record.getClass(), this::buildUpdateSql);
+    }
+
+    String buildUpdateSql(Class<? extends Record> clazz) {
+        return buildUpdateSql(clazz, null);
+    }
+
+    /**
+     * Builds UPDATE statement for the specified columns.
+     *
+     * @param clazz   record class
+     * @param columns indexes of columns in the order of INSERT statement, null for all columns
+     * @return SQL statement
+     */
+    String buildUpdateSql(Class<? extends Record> clazz, BitSet columns) {
+        var b = new StringBuilder("update ");
+
+        var table = clazz.getAnnotation(Table.class);
+        if (table == null) {
+            throw new IllegalStateException(NOT_ANNOTATED);
+        }
+
+        b.append(table.value()).append(" set ");
+
+        int fCount = 0;
+
+        var fields = getColumnFields(clazz);
+        for (int i = 0; i < fields.size(); i++) {
+            var field = fields.get(i);
+            if (field.getAnnotation(PrimaryKey.class) == null && (columns == null || columns.get(i))) {
+                if (fCount != 0) {
+                    b.append(", ");
+                }
+                b.append(field.getAnnotation(Column.class).value())
+                    .append("=")
+                    .append(proxy.getUpdateColumnPattern(field));
+                fCount++;
+            }
+        }
+
+        if (fCount == 0) {
+            throw new IllegalStateException("No fields");
+        }
+
+        b.append(" WHERE ").append(getPrimaryKeyCondition(clazz, "="));
+
+        return b.toString();
+    }
+
+    String getDeleteSQL(Class<? extends Record> clazz) {
+        return deleteSql.computeIfAbsent(clazz, this::buildDeleteSql);
+    }
+
+    String buildDeleteSql(Class<? extends Record> clazz) {
+        var b = new StringBuilder("DELETE FROM ");
+        var table = clazz.getAnnotation(Table.class);
+        if (table == null) {
+            throw new IllegalStateException(NOT_ANNOTATED);
+        }
+        b.append(table.value());
+
+        b.append(" WHERE ").append(getPrimaryKeyCondition(clazz, "="));
+
+        return b.toString();
+    }
+
+    private String getDeleteSQL(Record record) {
+        return getDeleteSQL(record.getClass());
+    }
+
+    RecordBinder getBinder(Class<? extends Record> clazz) {
+        return binders.computeIfAbsent(clazz, c -> RecordBinder.of(c, getColumnFields(c), proxy));
+    }
+
+    /**
+     * Pre-loads necessary information from the just opened database. This method must be called prior to any other
+     * database operations. Otherwise primary keys may be generated incorrectly.
+     *
+     * @param tables list of {@link Record} types
+     */
+    public void preload(Collection<Class<? extends Record>> tables) {
+        for (var clazz : tables) {
+            var table = clazz.getAnnotation(Table.class);
+            if (table == null) {
+                throw new IllegalStateException(CLASS_NOT_ANNOTATED + clazz.getTypeName());
+            }
+
+            var primaryKey = findPrimaryKey(clazz);
+            if (!primaryKey.isAutoIncrement() || primaryKey.isGenerated()
+                || clazz.isAnnotationPresent(Sequence.class))
+            {
+                continue;
+            }
+
+            var fieldTypeName = primaryKey.field.getType().getTypeName();
+            if (!AUTO_INCREMENT_TYPES.contains(fieldTypeName)) {
+                continue;
+            }
+
+            try (var conn = getDataSource().getConnection()) {
+                getKeyCounter(clazz).set(selectMaxPrimaryKey(conn, clazz));
+            } catch (SQLException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
+    private long selectMaxPrimaryKey(Connection conn, Class<? extends Record> clazz) throws SQLException {
+        var pattern = proxy.getSelectColumnString(findPrimaryKey(clazz).field);
+        try (var st = conn.prepareStatement("SELECT MAX(" + pattern + ") FROM " + Record.getTableName(clazz));
+             var rs = st.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Returns next available primary key value. This method is thread safe and lock-free.
+     * Only numeric types (int, long, {@link Integer}, {@link Long}) are currently supported.
+     *
+     * @param <K>   primary key type
+     * @param clazz record class
+     * @return primary key value
+     */
+    @SuppressWarnings("unchecked")
+    public <K extends Number> K generatePrimaryKey(Class<? extends Record<K>> clazz) {
+        var counter = getKeyCounter(clazz);
+        return (K) counter.box(counter.reserve(1));
+    }
+
+    /**
+     * Reserves contiguous range of primary key values in a single operation. This method is thread safe and
+     * lock-free. Only numeric types (int, long, {@link Integer}, {@link Long}) are currently supported.
+     *
+     * @param <K>   primary key type
+     * @param clazz record class
+     * @param n     number of values
+     * @return unmodifiable list of consecutive primary key values
+     */
+    public <K extends Number> List<K> generatePrimaryKeys(Class<? extends Record<K>> clazz, int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Number of keys must be >= 0");
+        }
+
+        var counter = getKeyCounter(clazz);
+        return new KeyRange<>(counter, n == 0 ? 0 : counter.reserve(n), n);
+    }
+
+    private KeyCounter getKeyCounter(Class<? extends Record> clazz) {
+        var counter = primaryKeys.get(clazz);
+        if (counter != null) {
+            return counter;
+        }
+
+        var primaryKey = findPrimaryKey(clazz);
+        if (!primaryKey.isAutoIncrement()) {
+            throw new IllegalStateException("Primary key for class " + clazz + " is not set to auto increment");
+        }
+        if (primaryKey.isGenerated()) {
+            throw new IllegalStateException("Primary key for class " + clazz + " is generated by the database");
+        }
+
+        var typeName = primaryKey.field.getType().getTypeName();
+        var intKey = TYPE_INT.equals(typeName) || TYPE_INTEGER.equals(typeName);
+        var sequence = clazz.getAnnotation(Sequence.class);
+
+        return primaryKeys.computeIfAbsent(clazz, k -> sequence == null ? new KeyCounter(intKey) :
+            new BlockKeyCounter(intKey, sequence.blockSize(),
+                size -> allocateKeyBlock(clazz, getSequenceName(clazz), size)));
+    }
+
+    private static String getSequenceName(Class<? extends Record> clazz) {
+        var sequence = clazz.getAnnotation(Sequence.class);
+        return sequence.value().isEmpty() ? Record.getTableName(clazz) : sequence.value();
+    }
+
+    /**
+     * Reserves block of keys in the sequence table. If sequence does not exist it is initialized by the maximum
+     * primary key value of the table. Separate connection is used so reserved keys are never rolled back.
+     *
+     * @param clazz record class
+     * @param name  sequence name
+     * @param size  number of keys
+     * @return first key of the block
+     */
+    private long allocateKeyBlock(Class<? extends Record> clazz, String name, int size) {
+        try (var conn = getDataSource().getConnection()) {
+            createSequenceTable(conn);
+
+            while (true) {
+                var last = proxy.incrementSequence(conn, SEQUENCE_TABLE, name, size);
+                if (last.isPresent()) {
+                    return last.getAsLong() - size + 1;
+                }
+
+                try (var st = conn.prepareStatement("INSERT INTO " + SEQUENCE_TABLE + " (seq_name, seq_value) "
+                    + "VALUES (?, ?)" + proxy.getUpsertClause("seq_name", List.of())))
+                {
+                    st.setString(1, name);
+                    st.setLong(2, selectMaxPrimaryKey(conn, clazz));
+                    st.executeUpdate();
+                }
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private void createSequenceTable(Connection conn) throws SQLException {
+        if (!sequenceTableCreated) {
+            try (var st = conn.createStatement()) {
+                st.executeUpdate("CREATE TABLE IF NOT EXISTS " + SEQUENCE_TABLE
+                    + " (seq_name VARCHAR(255) NOT NULL PRIMARY KEY, seq_value BIGINT NOT NULL)");
+            }
+            sequenceTableCreated = true;
+        }
+    }
+
+    private void resetSequence(Connection conn, Class<? extends Record> clazz) throws SQLException {
+        createSequenceTable(conn);
+        try (var st = conn.prepareStatement("DELETE FROM " + SEQUENCE_TABLE + " WHERE seq_name = ?")) {
+            st.setString(1, getSequenceName(clazz));
+            st.executeUpdate();
+        }
+    }
+
+    /**
+     * This method inserts new record with predefined id into the database. No attempt to generate
+     * new id is made. Calling code must ensure that predefined id is unique. If primary key is generated by the
+     * database and is not set, i.e. null or 0, the generated value is written into the record.
+     *
+     * @param record record
+     * @throws IllegalArgumentException if id of the record is 0
+     */
+    public void insert(Record record) {
+        try (var conn = getDataSource().getConnection()) {
+            insert(conn, record);
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * This method inserts new record with predefined id into the database. No attempt to generate
+     * new id is made. Calling code must ensure that predefined id is unique. If primary key is generated by the
+     * database and is not set, i.e. null or 0, the generated value is written into the record.
+     *
+     * @param conn   SQL connection
+     * @param record record
+     * @throws IllegalArgumentException if id of the record is 0
+     */
+    public void insert(Connection conn, Record record) {
+        if (needsGeneratedKey(record)) {
+            try (var st = statementCache.prepare(conn, getGeneratedInsertSql(record.getClass()),
+                Statement.RETURN_GENERATED_KEYS))
+            {
+                insertGenerated(st.getStatement(), List.of(record));
+            } catch (SQLException ex) {
+                throw new RuntimeException(ex);
+            } finally {
+                invalidate(conn, record);
+            }
+            return;
+        }
+
+        try (var st = statementCache.prepare(conn, getInsertSQL(record))) {
+            getBinder(record.getClass()).bindInsert(record, st.getStatement(), 1);
+            st.getStatement().executeUpdate();
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            invalidate(conn, record);
+        }
+    }
+
+    /**
+     * <p>This method inserts multiple records with predefined id using batch insert. No attempt to generate
+     * new id is made. Calling code must ensure that predefined id is unique for all records.</p>
+     * <p>Supplied records are divided to batches of the specified size. To avoid memory issues size of the batch
+     * must be tuned appropriately.</p>
+     *
+     * @param size    size of the batch
+     * @param records list of records
+     * @param <T>     type of records
+     */
+    public <T extends Record> void insert(int size, List<T> records) {
+        try (var conn = getConnection()) {
+            insert(conn, size, records);
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * <p>This method inserts multiple records with predefined id using batch insert. No attempt to generate
+     * new id is made. Calling code must ensure that predefined id is unique for all records.</p>
+     * <p>Supplied records are divided to batches of the specified size. To avoid memory issues size of the batch
+     * must be tuned appropriately.</p>
+     * <p>For MySQL each batch is sent as a few multi-row <code>INSERT ... VALUES (...),(...)</code> statements
+     * sized to fit into <code>max_allowed_packet</code> regardless of <code>rewriteBatchedStatements</code> driver
+     * setting.</p>
+     * <p>Stored {@link BlobRef} values cannot be written by batch insert, copy them by
+     * {@link #insert(Connection, Record)}.</p>
+     *
+     * @param conn    SQL connection
+     * @param size    size of the batch
+     * @param records list of records
+     * @param <T>     type of records
+     * @throws IllegalArgumentException if any record contains stored {@link BlobRef} value
+     */
+    public <T extends Record> void insert(Connection conn, int size, List<T> records) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Batch size must be >= 1");
+        }
+
+        insertBatches(conn, size, records, false);
+    }
+
+    private void insertBatches(Connection conn, int size, List<? extends Record> records, boolean upsert) {
+        checkStoredBlobs(records);
+
+        var statements = new HashMap<Integer, StatementCache.Entry>();
+        try {
+            for (int from = 0; from < records.size(); from += size) {
+                insertBatch(conn, records.subList(from, Math.min(from + size, records.size())), statements, upsert);
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            try {
+                closeStatements(statements.values());
+            } finally {
+                invalidate(conn, records);
+            }
+        }
+    }
+
+    /**
+     * Rejects stored {@link BlobRef} values in batch inserts. Each of them would hold a separate connection until
+     * the batch is executed.
+     *
+     * @param records records of the same type
+     * @throws IllegalArgumentException if any record contains stored value
+     */
+    private static void checkStoredBlobs(List<? extends Record> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        var clazz = records.get(0).getClass();
+        var handles = getColumnHandles(clazz);
+        for (var field : getColumnFields(clazz)) {
+            if (!isDeferred(field) || isLazy(field)) {
+                continue;
+            }
+            var column = field.getAnnotation(Column.class).value();
+            var handle = handles.get(column);
+            for (var record : records) {
+                var value = handle.get(record);
+                if (value != null && ((BlobRef) value).isStored()) {
+                    throw new IllegalArgumentException("Stored value of column " + column
+                        + " cannot be written by batch insert or upsert");
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads all lazy columns of the records in advance, so values are not loaded one by one while binding.
+     *
+     * @param conn    SQL connection
+     * @param records records of the same type
+     */
+    @SuppressWarnings("unchecked")
+    private void loadLazyColumns(Connection conn, List<? extends Record> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        for (var field : getColumnFields(records.get(0).getClass())) {
+            if (isLazy(field)) {
+                load(conn, (List<Record<Object>>) records, field.getAnnotation(Column.class).value());
+            }
+        }
+    }
+
+    /**
+     * Inserts batch of records. If dialect supports multi-row insert records are inserted by a few
+     * <code>INSERT ... VALUES (...),(...)</code> statements, otherwise by JDBC batch of single-row statements.
+     *
+     * @param conn       SQL connection
+     * @param batch      records of the same type
+     * @param statements statements by number of rows, must be closed by the caller
+     * @param upsert     if true existing records are updated
+     * @throws SQLException in case of SQL error
+     */
+    private void insertBatch(Connection conn, List<? extends Record> batch,
+                             Map<Integer, StatementCache.Entry> statements, boolean upsert) throws SQLException
+    {
+        loadLazyColumns(conn, batch);
+
+        var clazz = batch.get(0).getClass();
+        if (hasGeneratedKey(clazz)) {
+            var generated = new ArrayList<Record>();
+            var predefined = new ArrayList<Record>();
+            for (var r : batch) {
+                (needsGeneratedKey(r) ? generated : predefined).add(r);
+            }
+
+            if (!generated.isEmpty()) {
+                var st = statements.get(GENERATED_KEYS_STATEMENT);
+                if (st == null) {
+                    st = statementCache.prepare(conn, getGeneratedInsertSql(clazz), Statement.RETURN_GENERATED_KEYS);
+                    statements.put(GENERATED_KEYS_STATEMENT, st);
+                }
+                insertGenerated(st.getStatement(), generated);
+            }
+            if (predefined.isEmpty()) {
+                return;
+            }
+            batch = predefined;
+        }
+
+        var binder = getBinder(clazz);
+        if (upsert) {
+            setServerVersion(conn);
+        }
+
+        var maxLength = getMaxMultiRowInsertLength(conn);
+        if (maxLength == 0) {
+            var st = getInsertStatement(conn, clazz, 1, statements, upsert);
+            for (var r : batch) {
+                binder.bindInsert(r, st, 1);
+                st.addBatch();
+            }
+            st.executeBatch();
+            return;
+        }
+
+        int from = 0;
+        while (from < batch.size()) {
+            var rows = getMultiRowCount(batch, from, maxLength, upsert);
+            var st = getInsertStatement(conn, clazz, rows, statements, upsert);
+
+            int index = 1;
+            for (var r : batch.subList(from, from + rows)) {
+                index = binder.bindInsert(r, st, index);
+            }
+            st.executeUpdate();
+
+            from += rows;
+        }
+    }
+
+    /**
+     * Inserts records without primary key and writes generated keys back into records. If driver does not return
+     * generated keys for the batch records are inserted one by one.
+     *
+     * @param st      statement prepared with {@link Statement#RETURN_GENERATED_KEYS}
+     * @param records records of the same type
+     * @throws SQLException in case of SQL error
+     */
+    private void insertGenerated(PreparedStatement st, List<? extends Record> records) throws SQLException {
+        var binder = getBinder(records.get(0).getClass());
+
+        if (records.size() > 1 && proxy.supportsBatchGeneratedKeys()) {
+            for (var r : records) {
+                binder.bindGeneratedInsert(r, st, 1);
+                st.addBatch();
+            }
+            st.executeBatch();
+            try (var keys = st.getGeneratedKeys()) {
+                for (var r : records) {
+                    if (!keys.next()) {
+                        throw new IllegalStateException("Generated keys are not returned");
+                    }
+                    setGeneratedKey(r, keys.getLong(1));
+                }
+            }
+        } else {
+            for (var r : records) {
+                binder.bindGeneratedInsert(r, st, 1);
+                st.executeUpdate();
+                try (var keys = st.getGeneratedKeys()) {
+                    if (!keys.next()) {
+                        throw new IllegalStateException("Generated key is not returned");
+                    }
+                    setGeneratedKey(r, keys.getLong(1));
+                }
+            }
+        }
+    }
+
+    private static boolean hasGeneratedKey(Class<? extends Record> clazz) {
+        return GENERATED_KEY_MAP.computeIfAbsent(clazz, cl -> getColumnFields(cl).stream()
+            .anyMatch(f -> f.isAnnotationPresent(PrimaryKey.class)) && findPrimaryKey(cl).isGenerated());
+    }
+
+    private static boolean needsGeneratedKey(Record record) {
+        if (!hasGeneratedKey(record.getClass())) {
+            return false;
+        }
+        var value = findPrimaryKey(record.getClass()).handle.get(record);
+        return value == null || ((Number) value).longValue() == 0;
+    }
+
+    private static void setGeneratedKey(Record record, long key) {
+        var primaryKey = findPrimaryKey(record.getClass());
+        switch (primaryKey.field.getType().getTypeName()) {
+            case TYPE_INT:
+            case TYPE_INTEGER:
+                primaryKey.handle.set(record, Math.toIntExact(key));
+                break;
+            default:
+                primaryKey.handle.set(record, key);
+                break;
+        }
+    }
+
+    private PreparedStatement getInsertStatement(Connection conn, Class<? extends Record> clazz, int rows,
+                                                 Map<Integer, StatementCache.Entry> statements, boolean upsert)
+        throws SQLException
+    {
+        var st = statements.get(rows);
+        if (st == null) {
+            var sql = upsert ? getMultiRowUpsertSql(clazz, rows) : getMultiRowInsertSql(clazz, rows);
+            st = statementCache.prepare(conn, sql);
+            statements.put(rows, st);
+        }
+        return st.getStatement();
+    }
+
+    private void setServerVersion(Connection conn) throws SQLException {
+        if (!serverVersionSet) {
+            proxy.setServerVersion(conn.getMetaData().getDatabaseProductVersion());
+            serverVersionSet = true;
+        }
+    }
+
+    private long getMaxMultiRowInsertLength(Connection conn) throws SQLException {
+        var length = maxMultiRowInsertLength;
+        if (length < 0) {
+            length = proxy.getMaxMultiRowInsertLength(conn);
+            maxMultiRowInsertLength = length;
+        }
+        return length;
+    }
+
+    /**
+     * Returns number of rows for the next multi-row insert statement. Estimated statement length must not exceed
+     * the specified maximum. Result is rounded down to power of two so only a few statement shapes are prepared.
+     *
+     * @param batch     records
+     * @param from      index of the first record
+     * @param maxLength maximum statement length
+     * @param upsert    if true length of upsert statement is estimated
+     * @return number of rows, at least 1
+     */
+    int getMultiRowCount(List<? extends Record> batch, int from, long maxLength, boolean upsert) {
+        var clazz = batch.get(0).getClass();
+        var insertSql = getInsertSQL(clazz);
+        var rowPatternLength = insertSql.length() - insertSql.lastIndexOf(" VALUES ") - " VALUES ".length() + 1;
+        var sql = upsert ? getUpsertSQL(clazz) : insertSql;
+
+        var fields = getColumnFields(clazz);
+        var handles = getColumnHandles(clazz);
+        var maxRows = Math.max(1, proxy.getMaxParameterCount() / fields.size());
+
+        long length = sql.length() - rowPatternLength;
+        int rows = 0;
+        while (from + rows < batch.size() && rows < maxRows) {
+            var record = batch.get(from + rows);
+
+            long rowLength = rowPatternLength;
+            for (var field : fields) {
+                var value = handles.get(field.getAnnotation(Column.class).value()).get(record);
+                rowLength += estimateValueLength(value);
+            }
+
+            if (rows > 0 && length + rowLength > maxLength) {
+                break;
+            }
+            length += rowLength;
+            rows++;
+        }
+
+        return Integer.highestOneBit(rows);
+    }
+
+    /**
+     * Returns upper bound of the value length when driver substitutes it into SQL text: strings may be escaped
+     * and take up to 3 bytes per character, binary data may be escaped. Values of unknown length, i.e. unloaded
+     * lazy values and blobs without known length, exceed any packet size, so such record is inserted by a
+     * single-row statement.
+     *
+     * @param value value
+     * @return estimated length in bytes
+     */
+    static long estimateValueLength(Object value) {
+        if (value == null) {
+            return 4;
+        } else if (value instanceof String) {
+            return 3L * ((String) value).length() + 2;
+        } else if (value instanceof byte[]) {
+            return 2L * ((byte[]) value).length + 10;
+        } else if (value instanceof BlobRef) {
+            var length = ((BlobRef) value).getLength();
+            return length < 0 || ((BlobRef) value).isStored() ? UNKNOWN_VALUE_LENGTH : 2 * length + 10;
+        } else if (value instanceof Lazy) {
+            var lazy = (Lazy<?>) value;
+            return lazy.isLoaded() ? estimateValueLength(lazy.get()) : UNKNOWN_VALUE_LENGTH;
+        } else if (value instanceof Enum) {
+            return 3L * ((Enum) value).name().length() + 2;
+        } else {
+            return 64;
+        }
+    }
+
+    String getMultiRowInsertSql(Class<? extends Record> clazz, int rows) {
+        return multiRowInsertSql.computeIfAbsent(clazz, k -> new ConcurrentHashMap<>())
+            .computeIfAbsent(rows, r -> r == 1 ? getInsertSQL(clazz) : buildMultiRowSql(getInsertSQL(clazz), r, ""));
+    }
+
+    String getMultiRowUpsertSql(Class<? extends Record> clazz, int rows) {
+        return multiRowUpsertSql.computeIfAbsent(clazz, k -> new ConcurrentHashMap<>())
+            .computeIfAbsent(rows, r -> r == 1 ?
+                getUpsertSQL(clazz) : buildMultiRowSql(getInsertSQL(clazz), r, buildUpsertClause(clazz)));
+    }
+
+    private static String buildMultiRowSql(String insertSql, int rows, String suffix) {
+        var valuesIndex = insertSql.lastIndexOf(" VALUES ") + " VALUES ".length();
+        var rowPattern = insertSql.substring(valuesIndex);
+
+        var b = new StringBuilder(insertSql.length() + (rowPattern.length() + 1) * (rows - 1) + suffix.length())
+            .append(insertSql);
+        for (int i = 1; i < rows; i++) {
+            b.append(',').append(rowPattern);
+        }
+        return b.append(suffix).toString();
+    }
+
+    /**
+     * Inserts multiple records using single connection in bulk load mode.
+     *
+     * @param size           size of the batch
+     * @param commitInterval number of batches per transaction
+     * @param records        list of records
+     * @param <T>            type of records
+     * @return insert statistics
+     * @see #bulkInsert(Connection, int, int, List)
+     */
+    public <T extends Record> BulkInsertStats bulkInsert(int size, int commitInterval, List<T> records) {
+        try (var conn = getConnection()) {
+            return bulkInsert(conn, size, commitInterval, records);
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * <p>Inserts multiple records with predefined id in bulk load mode. Records are inserted by batches of the
+     * specified size like {@link #insert(Connection, int, List)} does. If connection is in auto-commit mode it is
+     * switched to manual commit and transaction is committed after each <code>commitInterval</code> batches and at
+     * the end. Auto-commit mode is restored afterwards.</p>
+     * <p>In case of failure the current transaction is rolled back, i.e. only records of the already committed
+     * transactions remain in the database.</p>
+     * <p>If connection is not in auto-commit mode records become part of the current transaction, no commits or
+     * rollbacks are made and <code>commitInterval</code> is ignored.</p>
+     *
+     * @param conn           SQL connection
+     * @param size           size of the batch
+     * @param commitInterval number of batches per transaction
+     * @param records        list of records
+     * @param <T>            type of records
+     * @return insert statistics
+     */
+    public <T extends Record> BulkInsertStats bulkInsert(Connection conn, int size, int commitInterval,
+                                                         List<T> records)
+    {
+        if (size < 1) {
+            throw new IllegalArgumentException("Batch size must be >= 1");
+        }
+        if (commitInterval < 1) {
+            throw new IllegalArgumentException("Commit interval must be >= 1");
+        }
+
+        var start = System.nanoTime();
+        if (records.isEmpty()) {
+            return new BulkInsertStats(0, 0, 0, 0);
+        }
+        checkStoredBlobs(records);
+
+        try {
+            var autoCommit = conn.getAutoCommit();
+            if (autoCommit) {
+                conn.setAutoCommit(false);
+            }
+
+            var statements = new HashMap<Integer, StatementCache.Entry>();
+            try {
+                long batches = 0;
+                long commits = 0;
+                var uncommitted = false;
+
+                for (int from = 0; from < records.size(); from += size) {
+                    insertBatch(conn, records.subList(from, Math.min(from + size, records.size())), statements,
+                        false);
+                    uncommitted = true;
+                    if (++batches % commitInterval == 0 && autoCommit) {
+                        conn.commit();
+                        commits++;
+                        uncommitted = false;
+                    }
+                }
+
+                if (autoCommit && uncommitted) {
+                    conn.commit();
+                    commits++;
+                }
+
+                return new BulkInsertStats(records.size(), batches, commits, System.nanoTime() - start);
+            } catch (SQLException | RuntimeException ex) {
+                if (autoCommit) {
+                    try {
+                        conn.rollback();
+                    } catch (SQLException rollbackEx) {
+                        ex.addSuppressed(rollbackEx);
+                    }
+                }
+                throw ex;
+            } finally {
+                try {
+                    closeStatements(statements.values());
+                } finally {
+                    invalidate(conn, records);
+                    if (autoCommit) {
+                        conn.setAutoCommit(true);
+                    }
+                }
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Inserts record into the database or updates existing record with the same primary key.
+     *
+     * @param record record
+     */
+    public void upsert(Record record) {
+        try (var conn = getDataSource().getConnection()) {
+            upsert(conn, record);
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Inserts record into the database or updates existing record with the same primary key. This is done by a
+     * single statement: <code>INSERT ... ON DUPLICATE KEY UPDATE</code> for MySQL and
+     * <code>INSERT ... ON CONFLICT DO UPDATE</code> for SQLite. Record with unset generated primary key is inserted
+     * like {@link #insert(Connection, Record)} does.
+     *
+     * @param conn   SQL connection
+     * @param record record
+     */
+    public void upsert(Connection conn, Record record) {
+        if (needsGeneratedKey(record)) {
+            insert(conn, record);
+            return;
+        }
+
+        try (var st = statementCache.prepare(conn, getUpsertSQL(conn, record.getClass()))) {
+            getBinder(record.getClass()).bindInsert(record, st.getStatement(), 1);
+            st.getStatement().executeUpdate();
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            invalidate(conn, record);
+        }
+    }
+
+    /**
+     * Inserts or updates multiple records using single connection.
+     *
+     * @param size    size of the batch
+     * @param records list of records
+     * @param <T>     type of records
+     * @see #upsert(Connection, int, List)
+     */
+    public <T extends Record> void upsert(int size, List<T> records) {
+        try (var conn = getConnection()) {
+            upsert(conn, size, records);
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * <p>Inserts multiple records into the database or updates existing records with the same primary keys.
+     * Records are processed by batches like {@link #insert(Connection, int, List)} does. Records with unset generated
+     * primary key are inserted.</p>
+     *
+     * @param conn    SQL connection
+     * @param size    size of the batch
+     * @param records list of records
+     * @param <T>     type of records
+     * @throws IllegalArgumentException if any record contains stored {@link BlobRef} value
+     * @see #upsert(Connection, Record)
+     */
+    public <T extends Record> void upsert(Connection conn, int size, List<T> records) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Batch size must be >= 1");
+        }
+
+        insertBatches(conn, size, records, true);
+    }
+
+    /**
+     * Updates record in the database. This method returns instance of the {@link Record}, i.e. supplied object is
+     * not changed.
+     *
+     * @param record record
+     */
+    public void update(Record record) {
+        try (var conn = getDataSource().getConnection()) {
+            update(conn, record);
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
     }
 
-    String getDeleteSQL(Class<? extends Record> clazz) {
-        return deleteSql.computeIfAbsent(clazz, cl -> {
-            var b = new StringBuilder("DELETE FROM ");
-            var table = cl.getAnnotation(Table.class);
-            if (table == null) {
-                throw new IllegalStateException(NOT_ANNOTATED);
+    /**
+     * Updates record in the database. This method returns instance of the {@link Record}, i.e. supplied object is
+     * not changed. Lazy columns that are not loaded are not updated.
+     *
+     * @param conn   SQL connection
+     * @param record record
+     */
+    public void update(Connection conn, Record record) {
+        var loaded = getLoadedColumns(record);
+        if (loaded != null) {
+            if (!loaded.isEmpty()) {
+                updateColumns(conn, record, loaded);
             }
-            b.append(table.value());
-
-            var primaryKeyField = findPrimaryKey(clazz);
-            b.append(" WHERE ")
-                .append(proxy.getWhereColumnString(primaryKeyField.field))
-                .append("=?");
+            return;
+        }
 
-            return b.toString();
-        });
+        try (var st = statementCache.prepare(conn, getUpdateSQL(record))) {
+            getBinder(record.getClass()).bindUpdate(record, st.getStatement(), 1);
+            st.getStatement().executeUpdate();
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            invalidate(conn, record);
+        }
     }
 
-    private String getDeleteSQL(Record record) {
-        return getDeleteSQL(record.getClass());
+    /**
+     * Returns true if dirty tracking is enabled.
+     *
+     * @return true if dirty tracking is enabled
+     */
+    public boolean isDirtyTracking() {
+        return dirtyTracker != null;
     }
 
-    private void setColumnToPreparedStatement(Record record, PreparedStatement st, int index, Field field,
-                                              VarHandle handle) throws SQLException
-    {
-        var fieldType = field.getType();
-
-        Object value = handle.get(record);
-        var typeName = fieldType.isEnum() ? TYPE_ENUM : fieldType.getTypeName();
-        proxy.setFieldData(st, index, value, typeName);
+    /**
+     * <p>Enables or disables dirty tracking. When enabled, column values of each record retrieved from the database
+     * are remembered, so {@link #updateChanged(Connection, Record)} can update only modified columns. Snapshots are
+     * kept until records are garbage collected.</p>
+     * <p>This method should be called before records are retrieved. Disabling dirty tracking discards all
+     * snapshots.</p>
+     *
+     * @param enabled true to enable dirty tracking
+     */
+    public void setDirtyTracking(boolean enabled) {
+        if (enabled == isDirtyTracking()) {
+            return;
+        }
+        dirtyTracker = enabled ? new DirtyTracker() : null;
+        rowMappers.clear();
+        projections.clear();
     }
 
-    private void setColumnToPreparedStatement(PreparedStatement st, int index, Field field,
-                                              Object value) throws SQLException
-    {
-        var fieldType = field.getType();
-        var typeName = fieldType.isEnum() ? TYPE_ENUM : fieldType.getTypeName();
-        proxy.setFieldData(st, index, value, typeName);
+    /**
+     * Updates modified columns of the record using single connection.
+     *
+     * @param record record
+     * @return true if record was updated
+     * @see #updateChanged(Connection, Record)
+     */
+    public boolean updateChanged(Record record) {
+        try (var conn = getDataSource().getConnection()) {
+            return updateChanged(conn, record);
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
     }
 
-    private void setData(Record record, PreparedStatement st, boolean update) {
-        try {
-            int index = 1;
+    /**
+     * <p>Updates only columns modified since the record was retrieved from the database or previously updated by
+     * this method. Nothing is done if no column was changed. Record must be the same instance that was returned by
+     * this DAO, otherwise all columns are updated like {@link #update(Connection, Record)} does.</p>
+     * <p>Dirty tracking must be enabled by {@link #setDirtyTracking(boolean)}.</p>
+     *
+     * @param conn   SQL connection
+     * @param record record
+     * @return true if record was updated
+     * @throws IllegalStateException if dirty tracking is disabled or primary key of the record was changed
+     */
+    public boolean updateChanged(Connection conn, Record record) {
+        var tracker = dirtyTracker;
+        if (tracker == null) {
+            throw new IllegalStateException("Dirty tracking is disabled");
+        }
+
+        var clazz = record.getClass();
+        var changed = tracker.getChangedColumns(record);
+        if (changed == null) {
+            update(conn, record);
+            tracker.snapshot(record);
+            return true;
+        }
 
-            var columns = COLUMN_MAP.computeIfAbsent(record.getClass(), DAO::computeColumns);
+        if (changed.get(getColumnFields(clazz).indexOf(findPrimaryKey(clazz).field))) {
+            throw new IllegalStateException("Primary key of the tracked record was changed");
+        }
 
-            for (var field : record.getClass().getDeclaredFields()) {
-                if (field.isAnnotationPresent(Column.class)) {
-                    // if update skip ID at this point
-                    var fld = field.getAnnotation(Column.class);
-                    if (update && field.getAnnotation(PrimaryKey.class) != null) {
-                        continue;
-                    }
+        if (changed.isEmpty()) {
+            return false;
+        }
 
-                    var handle = columns.get(fld.value());
-                    setColumnToPreparedStatement(record, st, index++, field, handle);
-                }
-            }
+        updateColumns(conn, record, changed);
+        tracker.snapshot(record);
+        return true;
+    }
 
-            if (update) {
-                var primaryKey = findPrimaryKey(record.getClass());
-                setColumnToPreparedStatement(record, st, index, primaryKey.field, primaryKey.handle);
-            }
-        } catch (Exception ex) {
+    private void updateColumns(Connection conn, Record record, BitSet columns) {
+        var clazz = record.getClass();
+        try (var st = statementCache.prepare(conn, getUpdateChangedSql(clazz, columns))) {
+            var ps = st.getStatement();
+            var binder = getBinder(clazz);
+            var index = binder.bindColumns(record, ps, 1, columns);
+            binder.bindPrimaryKey(record, ps, index);
+            ps.executeUpdate();
+        } catch (SQLException ex) {
             throw new RuntimeException(ex);
+        } finally {
+            invalidate(conn, record);
         }
     }
 
-    private PreparedStatement getPreparedStatement(Record record, Connection conn, boolean update) throws SQLException {
-        String sql = (update) ? getUpdateSQL(record) : getInsertSQL(record);
-        PreparedStatement st = conn.prepareStatement(sql);
-        setData(record, st, update);
-        return st;
-    }
+    /**
+     * Returns columns to update if the record has lazy columns that are not loaded or stored {@link BlobRef}
+     * values.
+     *
+     * @param record record
+     * @return all columns except primary key, unloaded lazy and stored blob columns, null if there are no such
+     * columns
+     */
+    private static BitSet getLoadedColumns(Record record) {
+        var clazz = record.getClass();
+        var fields = getColumnFields(clazz);
+        if (getSelectFields(clazz).size() == fields.size()) {
+            return null;
+        }
 
-    private PreparedStatement getDeleteStatement(Record record, Connection conn) throws SQLException {
-        PreparedStatement st = conn.prepareStatement(getDeleteSQL(record));
+        var handles = getColumnHandles(clazz);
+        var columns = new BitSet(fields.size());
+        var unloaded = false;
+        for (int i = 0; i < fields.size(); i++) {
+            var field = fields.get(i);
+            if (field.isAnnotationPresent(PrimaryKey.class)) {
+                continue;
+            }
+            if (isDeferred(field)) {
+                var value = handles.get(field.getAnnotation(Column.class).value()).get(record);
+                if ((value instanceof Lazy && !((Lazy<?>) value).isLoaded())
+                    || (value instanceof BlobRef && ((BlobRef) value).isStored()))
+                {
+                    unloaded = true;
+                    continue;
+                }
+            }
+            columns.set(i);
+        }
+        return unloaded ? columns : null;
+    }
 
-        var primaryKey = findPrimaryKey(record.getClass());
-        setColumnToPreparedStatement(record, st, 1, primaryKey.field, primaryKey.handle);
-        return st;
+    String getUpdateChangedSql(Class<? extends Record> clazz, BitSet columns) {
+        return updateChangedSql.computeIfAbsent(clazz, k -> new ConcurrentHashMap<>())
+            .computeIfAbsent(columns, c -> buildUpdateSql(clazz, c));
     }
 
-    private <K> PreparedStatement getDeleteStatement(K id, Class<? extends Record<K>> clazz, Connection conn) throws SQLException {
-        PreparedStatement st = conn.prepareStatement(getDeleteSQL(clazz));
-        var primaryKey = findPrimaryKey(clazz);
-        setColumnToPreparedStatement(st, 1, primaryKey.field, id);
-        return st;
+    /**
+     * Updates multiple records using single connection.
+     *
+     * @param size    size of the batch
+     * @param records list of records
+     * @param <T>     type of records
+     * @see #update(Connection, int, List)
+     */
+    public <T extends Record> void update(int size, List<T> records) {
+        try (var conn = getConnection()) {
+            update(conn, size, records);
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
     }
 
     /**
-     * Pre-loads necessary information from the just opened database. This method must be called prior to any other
-     * database operations. Otherwise primary keys may be generated incorrectly.
+     * <p>Updates multiple records using batch update. Supplied records are divided to batches of the specified
+     * size. To avoid memory issues size of the batch must be tuned appropriately.</p>
+     * <p>Lazy columns that are not loaded and stored {@link BlobRef} values are not updated like
+     * {@link #update(Connection, Record)} does. Records are grouped by the set of loaded columns, each group is
+     * updated by its own statement.</p>
      *
-     * @param tables list of {@link Record} types
+     * @param conn    SQL connection
+     * @param size    size of the batch
+     * @param records list of records
+     * @param <T>     type of records
      */
-    public void preload(Collection<Class<? extends Record>> tables) {
-        for (var clazz : tables) {
-            var table = clazz.getAnnotation(Table.class);
-            if (table == null) {
-                throw new IllegalStateException(CLASS_NOT_ANNOTATED + clazz.getTypeName());
-            }
+    public <T extends Record> void update(Connection conn, int size, List<T> records) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Batch size must be >= 1");
+        }
 
-            var primaryKey = findPrimaryKey(clazz);
-            if (!primaryKey.isAutoIncrement()) {
-                continue;
-            }
+        if (!records.isEmpty()) {
+            var clazz = records.get(0).getClass();
+            var binder = getBinder(clazz);
 
-            var fieldTypeName = primaryKey.field.getType().getTypeName();
-            if (!AUTO_INCREMENT_TYPES.contains(fieldTypeName)) {
-                continue;
+            var groups = new LinkedHashMap<BitSet, List<T>>();
+            for (var record : records) {
+                groups.computeIfAbsent(getLoadedColumns(record), k -> new ArrayList<>()).add(record);
             }
 
-            var pattern = proxy.getSelectColumnString(primaryKey.field);
-
-            Number maxValue = 0;
-
-            try (var conn = getDataSource().getConnection()) {
-                var st = conn.prepareStatement("SELECT MAX(" + pattern + ") FROM " + table.value());
-                try (var rs = st.executeQuery()) {
-                    if (rs.next()) {
-                        switch (fieldTypeName) {
-                            case TYPE_INT:
-                            case TYPE_INTEGER:
-                                maxValue = rs.getInt(1);
-                                break;
-                            case TYPE_LONG:
-                            case TYPE_LONG_PRIM:
-                                maxValue = rs.getLong(1);
-                                break;
-                        }
+            try {
+                for (var group : groups.entrySet()) {
+                    var columns = group.getKey();
+                    if (columns == null) {
+                        executeBatches(conn, getUpdateSQL(records.get(0)), size, group.getValue(),
+                            (st, r) -> binder.bindUpdate(r, st, 1));
+                    } else if (!columns.isEmpty()) {
+                        executeBatches(conn, getUpdateChangedSql(clazz, columns), size, group.getValue(),
+                            (st, r) -> binder.bindPrimaryKey(r, st, binder.bindColumns(r, st, 1, columns)));
                     }
                 }
-            } catch (SQLException ex) {
-                throw new RuntimeException(ex);
+            } finally {
+                invalidate(conn, records);
             }
-
-            primaryKeys.put(clazz, maxValue);
         }
     }
 
+
     /**
-     * Returns next available primary key value. This method is thread safe.
-     * Only numeric types (int, long, {@link Integer}, {@link Long}) are currently supported.
+     * Deleted record from the database.
      *
-     * @param <K>   primary key type
-     * @param clazz record class
-     * @return primary key value
+     * @param record record to delete
      */
-    public <K extends Number> K generatePrimaryKey(Class<? extends Record<K>> clazz) {
-        var primaryKey = findPrimaryKey(clazz);
-        if (!primaryKey.isAutoIncrement()) {
-            throw new IllegalStateException("Primary key for class " + clazz + " is not set to auto increment");
+    public void delete(Record record) {
+        try (var conn = getDataSource().getConnection()) {
+            delete(conn, record);
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
         }
+    }
 
-        return (K) primaryKeys.compute(clazz, (k, v) -> {
-            if (v instanceof Integer) {
-                return (Integer) v + 1;
-            } else if (v instanceof Long) {
-                return (Long) v + 1;
-            } else {
-                return 1;
-            }
-        });
+    /**
+     * Deleted record from the database.
+     *
+     * @param conn   SQL connection
+     * @param record record to delete
+     */
+    public void delete(Connection conn, Record record) {
+        try (var st = statementCache.prepare(conn, getDeleteSQL(record))) {
+            getBinder(record.getClass()).bindPrimaryKey(record, st.getStatement(), 1);
+            st.getStatement().executeUpdate();
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            invalidate(conn, record);
+        }
     }
 
     /**
-     * This method inserts new record with predefined id into the database. No attempt to generate
-     * new id is made. Calling code must ensure that predefined id is unique.
+     * Deletes record from the database.
      *
-     * @param record record
-     * @throws IllegalArgumentException if id of the record is 0
+     * @param <K>   primary key type
+     * @param id    id of the record
+     * @param clazz record type
      */
-    public void insert(Record record) {
+    public <K> void delete(K id, Class<? extends Record<K>> clazz) {
         try (var conn = getDataSource().getConnection()) {
-            insert(conn, record);
+            delete(conn, id, clazz);
         } catch (SQLException ex) {
             throw new RuntimeException(ex);
         }
     }
 
     /**
-     * This method inserts new record with predefined id into the database. No attempt to generate
-     * new id is made. Calling code must ensure that predefined id is unique.
+     * Deletes record from the database.
      *
-     * @param conn   SQL connection
-     * @param record record
-     * @throws IllegalArgumentException if id of the record is 0
+     * @param <K>   primary key type
+     * @param conn  SQL connection
+     * @param id    id of the record
+     * @param clazz record type
      */
-    public void insert(Connection conn, Record record) {
-        try (var st = getPreparedStatement(record, conn, false)) {
-            st.executeUpdate();
+    public <K> void delete(Connection conn, K id, Class<? extends Record<K>> clazz) {
+        try (var st = statementCache.prepare(conn, getDeleteSQL(clazz))) {
+            getBinder(clazz).bindPrimaryKeyValue(id, st.getStatement(), 1);
+            st.getStatement().executeUpdate();
         } catch (SQLException ex) {
             throw new RuntimeException(ex);
+        } finally {
+            invalidate(conn, clazz, List.of(id));
         }
     }
 
     /**
-     * <p>This method inserts multiple records with predefined id using batch insert. No attempt to generate
-     * new id is made. Calling code must ensure that predefined id is unique for all records.</p>
-     * <p>Supplied records are divided to batches of the specified size. To avoid memory issues size of the batch
-     * must be tuned appropriately.</p>
+     * Deletes multiple records using single connection.
      *
      * @param size    size of the batch
      * @param records list of records
      * @param <T>     type of records
+     * @see #delete(Connection, int, List)
      */
-    public <T extends Record> void insert(int size, List<T> records) {
+    public <T extends Record> void delete(int size, List<T> records) {
         try (var conn = getConnection()) {
-            insert(conn, size, records);
+            delete(conn, size, records);
         } catch (SQLException ex) {
             throw new RuntimeException(ex);
         }
     }
 
     /**
-     * <p>This method inserts multiple records with predefined id using batch insert. No attempt to generate
-     * new id is made. Calling code must ensure that predefined id is unique for all records.</p>
-     * <p>Supplied records are divided to batches of the specified size. To avoid memory issues size of the batch
-     * must be tuned appropriately.</p>
+     * <p>Deletes multiple records using batch delete. Supplied records are divided to batches of the specified
+     * size.</p>
      *
      * @param conn    SQL connection
      * @param size    size of the batch
      * @param records list of records
      * @param <T>     type of records
      */
-    public <T extends Record> void insert(Connection conn, int size, List<T> records) {
+    public <T extends Record> void delete(Connection conn, int size, List<T> records) {
         if (size < 1) {
             throw new IllegalArgumentException("Batch size must be >= 1");
         }
 
         if (!records.isEmpty()) {
-            var sql = getInsertSQL(records.get(0));
-
-            try (var st = conn.prepareStatement(sql)) {
-                int count = 0;
-
-                for (T r : records) {
-                    setData(r, st, false);
-                    st.addBatch();
-
-                    if (++count % size == 0) {
-                        st.executeBatch();
-                    }
-                }
-
-                st.executeBatch();
-            } catch (SQLException ex) {
-                throw new RuntimeException(ex);
+            var binder = getBinder(records.get(0).getClass());
+            try {
+                executeBatches(conn, getDeleteSQL(records.get(0)), size, records, (st, r) ->
+                    binder.bindPrimaryKey(r, st, 1));
+            } finally {
+                invalidate(conn, records);
             }
         }
     }
 
     /**
-     * Updates record in the database. This method returns instance of the {@link Record}, i.e. supplied object is
-     * not changed.
+     * Deletes multiple records by primary keys using single connection.
      *
-     * @param record record
+     * @param <K>   primary key type
+     * @param <T>   type of the record
+     * @param size  size of the batch
+     * @param ids   primary keys
+     * @param clazz record class
+     * @see #delete(Connection, int, Collection, Class)
      */
-    public void update(Record record) {
-        try (var conn = getDataSource().getConnection()) {
-            update(conn, record);
+    public <K, T extends Record<K>> void delete(int size, Collection<K> ids, Class<T> clazz) {
+        try (var conn = getConnection()) {
+            delete(conn, size, ids, clazz);
         } catch (SQLException ex) {
             throw new RuntimeException(ex);
         }
     }
 
     /**
-     * Updates record in the database. This method returns instance of the {@link Record}, i.e. supplied object is
-     * not changed.
+     * <p>Deletes multiple records by primary keys using batch delete. Supplied keys are divided to batches of the
+     * specified size.</p>
      *
-     * @param conn   SQL connection
-     * @param record record
+     * @param <K>   primary key type
+     * @param <T>   type of the record
+     * @param conn  SQL connection
+     * @param size  size of the batch
+     * @param ids   primary keys
+     * @param clazz record class
      */
-    public void update(Connection conn, Record record) {
-        try (var ps = getPreparedStatement(record, conn, true)) {
-            ps.executeUpdate();
-        } catch (SQLException ex) {
-            throw new RuntimeException(ex);
+    public <K, T extends Record<K>> void delete(Connection conn, int size, Collection<K> ids, Class<T> clazz) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Batch size must be >= 1");
         }
-    }
-
 
-    /**
-     * Deleted record from the database.
-     *
-     * @param record record to delete
-     */
-    public void delete(Record record) {
-        try (var conn = getDataSource().getConnection(); var ps = getDeleteStatement(record, conn)) {
-            ps.executeUpdate();
-        } catch (SQLException ex) {
-            throw new RuntimeException(ex);
+        if (!ids.isEmpty()) {
+            var binder = getBinder(clazz);
+            try {
+                executeBatches(conn, getDeleteSQL(clazz), size, ids, (st, id) -> binder.bindPrimaryKeyValue(id, st, 1));
+            } finally {
+                invalidate(conn, clazz, ids);
+            }
         }
     }
 
+    @FunctionalInterface
+    private interface StatementBinder<E> {
+        void bind(PreparedStatement st, E element) throws SQLException;
+    }
+
     /**
-     * Deletes record from the database.
+     * Executes the same statement for each element using JDBC batches of the specified size.
      *
-     * @param <K>   primary key type
-     * @param id    id of the record
-     * @param clazz record type
+     * @param conn     SQL connection
+     * @param sql      SQL statement
+     * @param size     size of the batch
+     * @param elements elements
+     * @param binder   sets statement parameters for the element
+     * @param <E>      type of elements
      */
-    public <K> void delete(K id, Class<? extends Record<K>> clazz) {
-        try (var conn = getDataSource().getConnection(); var ps = getDeleteStatement(id, clazz, conn)) {
-            ps.executeUpdate();
+    private <E> void executeBatches(Connection conn, String sql, int size, Collection<E> elements,
+                                    StatementBinder<? super E> binder)
+    {
+        try (var entry = statementCache.prepare(conn, sql)) {
+            var st = entry.getStatement();
+            int count = 0;
+
+            for (var element : elements) {
+                binder.bind(st, element);
+                st.addBatch();
+
+                if (++count % size == 0) {
+                    st.executeBatch();
+                }
+            }
+
+            if (count % size != 0) {
+                st.executeBatch();
+            }
         } catch (SQLException ex) {
             throw new RuntimeException(ex);
         }
@@ -957,7 +3278,11 @@ public class DAO {
      * @param table      table class
      */
     public void deleteAll(Connection connection, Class<? extends Record> table) {
-        proxy.deleteAll(connection, table);
+        try {
+            proxy.deleteAll(connection, table);
+        } finally {
+            invalidateAll(connection, List.of(table));
+        }
     }
 
     /**
@@ -984,9 +3309,20 @@ public class DAO {
      * @param tables tables to truncate
      */
     public void truncate(Connection conn, List<Class<? extends Record>> tables) {
-        proxy.truncate(conn, tables);
-        for (Class<? extends Record> t : tables) {
-            primaryKeys.put(t, 0);
+        try {
+            proxy.truncate(conn, tables);
+        } finally {
+            invalidateAll(conn, tables);
+        }
+        try {
+            for (Class<? extends Record> t : tables) {
+                if (t.isAnnotationPresent(Sequence.class)) {
+                    resetSequence(conn, t);
+                }
+                resetCounter(t);
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
         }
     }
 
@@ -997,7 +3333,21 @@ public class DAO {
      * @param table table class
      */
     protected void resetPrimaryKey(Class<? extends Record> table) {
-        primaryKeys.put(table, 0);
+        if (table.isAnnotationPresent(Sequence.class)) {
+            try (var conn = getDataSource().getConnection()) {
+                resetSequence(conn, table);
+            } catch (SQLException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+        resetCounter(table);
+    }
+
+    private void resetCounter(Class<? extends Record> table) {
+        var counter = primaryKeys.get(table);
+        if (counter != null) {
+            counter.set(0);
+        }
     }
 
     /**
@@ -1026,6 +3376,8 @@ public class DAO {
             }
         } catch (SQLException ex) {
             throw new RuntimeException(ex);
+        } finally {
+            invalidateAll(conn, tables);
         }
     }
 
@@ -1089,8 +3441,14 @@ public class DAO {
                     continue;
                 }
 
-                var columns = COLUMN_MAP.computeIfAbsent(clazz, DAO::computeColumns);
-                return new PrimaryKeyHandle(field, columns.get(column.value()), primaryKey.isAutoIncrement());
+                var handle = getColumnHandles(clazz).get(column.value());
+                var generated = primaryKey.isAutoIncrement() && primaryKey.isGenerated()
+                    && AUTO_INCREMENT_TYPES.contains(field.getType().getTypeName());
+                if (generated && !handle.isAccessModeSupported(VarHandle.AccessMode.SET)) {
+                    throw new IllegalStateException("Generated primary key of " + clazz.getTypeName()
+                        + " must not be final");
+                }
+                return new PrimaryKeyHandle(field, handle, primaryKey.isAutoIncrement(), generated);
             }
 
             throw new IllegalStateException("No primary key defined for " + clazz.getTypeName());
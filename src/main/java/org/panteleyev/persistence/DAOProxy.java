@@ -32,6 +32,7 @@ import org.panteleyev.persistence.annotations.Index;
 import org.panteleyev.persistence.annotations.PrimaryKey;
 import org.panteleyev.persistence.annotations.ReferenceOption;
 import org.panteleyev.persistence.annotations.Table;
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.sql.Connection;
@@ -44,136 +45,266 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.OptionalLong;
 import java.util.UUID;
-import java.util.function.BiFunction;
 import static org.panteleyev.persistence.DAOTypes.BAD_FIELD_TYPE;
 import static org.panteleyev.persistence.DAOTypes.FIELD_NOT_ANNOTATED;
-import static org.panteleyev.persistence.DAOTypes.TYPE_BIG_DECIMAL;
-import static org.panteleyev.persistence.DAOTypes.TYPE_BOOL;
-import static org.panteleyev.persistence.DAOTypes.TYPE_BOOLEAN;
-import static org.panteleyev.persistence.DAOTypes.TYPE_DATE;
-import static org.panteleyev.persistence.DAOTypes.TYPE_ENUM;
-import static org.panteleyev.persistence.DAOTypes.TYPE_INT;
-import static org.panteleyev.persistence.DAOTypes.TYPE_INTEGER;
-import static org.panteleyev.persistence.DAOTypes.TYPE_LOCAL_DATE;
-import static org.panteleyev.persistence.DAOTypes.TYPE_LONG;
-import static org.panteleyev.persistence.DAOTypes.TYPE_LONG_PRIM;
-import static org.panteleyev.persistence.DAOTypes.TYPE_STRING;
-import static org.panteleyev.persistence.DAOTypes.TYPE_UUID;
 
 interface DAOProxy {
-    BiFunction<ResultSet, String, Object> OBJECT_READER = (ResultSet rs, String name) -> {
-        try {
-            return rs.getObject(name);
-        } catch (SQLException ex) {
-            throw new RuntimeException(ex);
-        }
-    };
+    /**
+     * Reads column value from the current row of the result set by column index.
+     *
+     * @param <T> type of the value
+     */
+    @FunctionalInterface
+    interface ResultSetReader<T> {
+        T read(ResultSet rs, int index) throws SQLException;
+    }
 
-    BiFunction<ResultSet, String, Boolean> BOOL_READER = (ResultSet rs, String name) -> {
-        try {
-            return rs.getBoolean(name);
-        } catch (SQLException ex) {
-            throw new RuntimeException(ex);
-        }
-    };
+    ResultSetReader<Object> OBJECT_READER = ResultSet::getObject;
 
-    BiFunction<ResultSet, String, Boolean> INT_BOOL_READER = (ResultSet rs, String name) -> {
-        try {
-            Object value = rs.getObject(name);
-            return value != null && ((int) value == 1);
-        } catch (SQLException ex) {
-            throw new RuntimeException(ex);
-        }
-    };
+    ResultSetReader<Boolean> BOOL_READER = ResultSet::getBoolean;
 
-    BiFunction<ResultSet, String, Boolean> INT_BOOLEAN_READER = (ResultSet rs, String name) -> {
-        try {
-            Object value = rs.getObject(name);
-            return value == null ? null : (int) value == 1;
-        } catch (SQLException ex) {
-            throw new RuntimeException(ex);
-        }
+    ResultSetReader<Boolean> INT_BOOL_READER = (ResultSet rs, int index) -> {
+        Object value = rs.getObject(index);
+        return value != null && ((int) value == 1);
     };
 
-    BiFunction<ResultSet, String, BigDecimal> BIG_DECIMAL_READER = (ResultSet rs, String name) -> {
-        try {
-            return rs.getBigDecimal(name);
-        } catch (SQLException ex) {
-            throw new RuntimeException(ex);
-        }
+    ResultSetReader<Boolean> INT_BOOLEAN_READER = (ResultSet rs, int index) -> {
+        Object value = rs.getObject(index);
+        return value == null ? null : (int) value == 1;
     };
 
-    BiFunction<ResultSet, String, Integer> INT_READER = (ResultSet rs, String name) -> {
-        try {
-            return rs.getInt(name);
-        } catch (SQLException ex) {
-            throw new RuntimeException(ex);
-        }
-    };
+    ResultSetReader<BigDecimal> BIG_DECIMAL_READER = ResultSet::getBigDecimal;
 
-    BiFunction<ResultSet, String, Long> LONG_READER = (ResultSet rs, String name) -> {
-        try {
-            return rs.getLong(name);
-        } catch (SQLException ex) {
-            throw new RuntimeException(ex);
-        }
-    };
+    ResultSetReader<Integer> INT_READER = ResultSet::getInt;
 
-    BiFunction<ResultSet, String, Date> DATE_READER = (ResultSet rs, String name) -> {
-        try {
-            return rs.getObject(name) == null ? null : new Date(rs.getLong(name));
-        } catch (SQLException ex) {
-            throw new RuntimeException(ex);
-        }
-    };
+    ResultSetReader<Long> LONG_READER = ResultSet::getLong;
 
-    BiFunction<ResultSet, String, LocalDate> LOCAL_DATE_READER = (ResultSet rs, String name) -> {
-        try {
-            return rs.getObject(name) == null ? null : LocalDate.ofEpochDay(rs.getLong(name));
-        } catch (SQLException ex) {
-            throw new RuntimeException(ex);
-        }
+    ResultSetReader<Date> DATE_READER = (ResultSet rs, int index) ->
+        rs.getObject(index) == null ? null : new Date(rs.getLong(index));
+
+    ResultSetReader<LocalDate> LOCAL_DATE_READER = (ResultSet rs, int index) ->
+        rs.getObject(index) == null ? null : LocalDate.ofEpochDay(rs.getLong(index));
+
+    ResultSetReader<byte[]> BYTE_ARRAY_READER = ResultSet::getBytes;
+
+    ResultSetReader<UUID> UUID_STRING_READER = (ResultSet rs, int index) -> {
+        String uuid = rs.getString(index);
+        return uuid == null ? null : UUID.fromString(uuid);
     };
 
-    BiFunction<ResultSet, String, byte[]> BYTE_ARRAY_READER = (ResultSet rs, String name) -> {
-        try {
-            return rs.getBytes(name);
-        } catch (SQLException ex) {
-            throw new RuntimeException(ex);
+    /**
+     * Sets statement parameter from the field value.
+     */
+    @FunctionalInterface
+    interface ParameterWriter {
+        void write(PreparedStatement st, int index, Object value) throws SQLException;
+    }
+
+    ParameterWriter STRING_WRITER = nullable(Types.VARCHAR, (st, index, value) ->
+        st.setString(index, (String) value));
+
+    ParameterWriter UUID_STRING_WRITER = nullable(Types.VARCHAR, (st, index, value) ->
+        st.setString(index, value.toString()));
+
+    ParameterWriter BOOL_WRITER = nullable(Types.BOOLEAN, (st, index, value) ->
+        st.setBoolean(index, (Boolean) value));
+
+    ParameterWriter INT_WRITER = nullable(Types.INTEGER, (st, index, value) ->
+        st.setInt(index, (Integer) value));
+
+    ParameterWriter LONG_WRITER = nullable(Types.INTEGER, (st, index, value) ->
+        st.setLong(index, (Long) value));
+
+    ParameterWriter DATE_WRITER = nullable(Types.INTEGER, (st, index, value) ->
+        st.setLong(index, ((Date) value).getTime()));
+
+    ParameterWriter LOCAL_DATE_WRITER = nullable(Types.INTEGER, (st, index, value) ->
+        st.setLong(index, ((LocalDate) value).toEpochDay()));
+
+    ParameterWriter BIG_DECIMAL_WRITER = nullable(Types.DECIMAL, (st, index, value) ->
+        st.setBigDecimal(index, (BigDecimal) value));
+
+    ParameterWriter ENUM_WRITER = nullable(Types.VARCHAR, (st, index, value) ->
+        st.setString(index, ((Enum) value).name()));
+
+    ParameterWriter BLOB_WRITER = nullable(Types.BLOB, (st, index, value) ->
+        st.setBytes(index, (byte[]) value));
+
+    ParameterWriter VARBINARY_WRITER = nullable(Types.VARBINARY, (st, index, value) ->
+        st.setBytes(index, (byte[]) value));
+
+    ParameterWriter BINARY_STREAM_WRITER = binaryStreamWriter(false);
+
+    // Driver does not support streams of unknown length, such streams are read into memory
+    ParameterWriter BUFFERED_BINARY_STREAM_WRITER = binaryStreamWriter(true);
+
+    private static ParameterWriter binaryStreamWriter(boolean bufferUnknownLength) {
+        return nullable(Types.LONGVARBINARY, (st, index, value) -> {
+            var blob = (BlobRef) value;
+            try {
+                var stream = blob.openStream();
+                if (stream == null) {
+                    st.setNull(index, Types.LONGVARBINARY);
+                    return;
+                }
+
+                var length = blob.getLength();
+                if (length == 0) {
+                    stream.close();
+                    st.setBytes(index, new byte[0]);
+                    return;
+                }
+
+                // Stream is closed when driver reads it to the end or reads the specified length
+                var in = new BlobInputStream(stream, length);
+                if (length < 0 && bufferUnknownLength) {
+                    try (in) {
+                        st.setBytes(index, in.readAllBytes());
+                    }
+                } else if (length < 0) {
+                    st.setBinaryStream(index, in);
+                } else if (length <= Integer.MAX_VALUE) {
+                    st.setBinaryStream(index, in, (int) length);
+                } else {
+                    st.setBinaryStream(index, in, length);
+                }
+            } catch (IOException ex) {
+                throw new SQLException(ex);
+            }
+        });
+    }
+
+    private static ParameterWriter nullable(int sqlType, ParameterWriter writer) {
+        return (st, index, value) -> {
+            if (value == null) {
+                st.setNull(index, sqlType);
+            } else {
+                writer.write(st, index, value);
+            }
+        };
+    }
+
+    /**
+     * Returns writer for the parameter of the specified type. Writers are resolved once per column and then applied
+     * to each row.
+     *
+     * @param typeClass type of the field
+     * @return parameter writer
+     * @throws IllegalStateException if type is not supported
+     */
+    default ParameterWriter getParameterWriter(Class<?> typeClass) {
+        if (typeClass.isEnum()) {
+            return ENUM_WRITER;
         }
-    };
 
-    BiFunction<ResultSet, String, UUID> UUID_STRING_READER = (ResultSet rs, String name) -> {
-        try {
-            String uuid = rs.getString(name);
-            return uuid == null ? null : UUID.fromString(uuid);
-        } catch (SQLException ex) {
-            throw new RuntimeException(ex);
+        var writer = getWriterMap().get(typeClass.getTypeName());
+        if (writer == null) {
+            throw new IllegalStateException(BAD_FIELD_TYPE + typeClass.getTypeName());
         }
-    };
+        return writer;
+    }
+
+    Map<String, ParameterWriter> getWriterMap();
 
-    default Object getFieldValue(String fieldName, Class typeClass, ResultSet set) throws SQLException {
+    /**
+     * Returns reader for the column of the specified type. Readers are resolved once per column and then applied
+     * to each row.
+     *
+     * @param typeClass type of the field or constructor parameter
+     * @return column reader
+     * @throws IllegalStateException if type is not supported
+     */
+    @SuppressWarnings("unchecked")
+    default ResultSetReader<?> getColumnReader(Class typeClass) {
         if (typeClass.isEnum()) {
-            var value = set.getObject(fieldName);
-            return value == null ? null : Enum.valueOf(typeClass, (String) value);
+            return (ResultSet rs, int index) -> {
+                var value = rs.getObject(index);
+                return value == null ? null : Enum.valueOf(typeClass, (String) value);
+            };
         }
 
         var reader = getReaderMap().get(typeClass.getTypeName());
         if (reader == null) {
             throw new IllegalStateException(BAD_FIELD_TYPE + typeClass.getTypeName());
         }
-
-        return reader.apply(set, fieldName);
+        return reader;
     }
 
-    Map<String, BiFunction<ResultSet, String, ?>> getReaderMap();
+    Map<String, ResultSetReader<?>> getReaderMap();
 
     String getColumnString(Column fld, PrimaryKey primaryKey, ForeignKey foreignKey, String typeName,
                            List<String> constraints);
 
     void truncate(Connection connection, List<Class<? extends Record>> tables);
 
+    /**
+     * Prepares forward-only read-only statement for row-by-row iteration over large result sets.
+     *
+     * @param conn      connection
+     * @param sql       SQL statement
+     * @param fetchSize fetch size hint, 0 means driver default
+     * @return prepared statement
+     * @throws SQLException in case of SQL error
+     */
+    default PreparedStatement prepareStreamingStatement(Connection conn, String sql, int fetchSize)
+        throws SQLException
+    {
+        var st = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        if (fetchSize > 0) {
+            st.setFetchSize(fetchSize);
+        }
+        return st;
+    }
+
+    /**
+     * Returns maximum length of the multi-row <code>INSERT ... VALUES (...),(...)</code> statement.
+     *
+     * @param conn connection
+     * @return maximum statement length in bytes, 0 if multi-row insert is not supported
+     * @throws SQLException in case of SQL error
+     */
+    default long getMaxMultiRowInsertLength(Connection conn) throws SQLException {
+        return 0;
+    }
+
+    /**
+     * Returns true if driver returns generated keys for all rows of the JDBC batch. Otherwise rows with generated
+     * keys are inserted one by one.
+     *
+     * @return true if generated keys of the batch are available
+     */
+    default boolean supportsBatchGeneratedKeys() {
+        return false;
+    }
+
+    /**
+     * Returns maximum number of parameters in a single prepared statement.
+     *
+     * @return maximum number of parameters
+     */
+    default int getMaxParameterCount() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Sets version of the database server. Called before the first upsert statement is built.
+     *
+     * @param version version string reported by the driver
+     */
+    default void setServerVersion(String version) {
+    }
+
+    /**
+     * Returns clause that turns insert statement into insert or update by primary key.
+     *
+     * @param primaryKey primary key column
+     * @param columns    columns to update
+     * @return SQL clause appended to insert statement
+     */
+    String getUpsertClause(String primaryKey, List<String> columns);
+
     default String getInsertColumnPattern(Field field) {
         return "?";
     }
@@ -188,6 +319,17 @@ interface DAOProxy {
         return column.value();
     }
 
+    /**
+     * Returns parameter pattern compared with the column in WHERE clause. Conversion is applied to the parameter
+     * rather than to the column, so the column index can be used.
+     *
+     * @param field field annotated with {@link Column}
+     * @return parameter pattern
+     */
+    default String getWhereParameterPattern(Field field) {
+        return getInsertColumnPattern(field);
+    }
+
     /**
      * Returns string representation of the column in SELECT statement.
      *
@@ -200,79 +342,6 @@ interface DAOProxy {
         return column.value();
     }
 
-    default void setFieldData(PreparedStatement st, int index, Object value, String typeName) throws SQLException {
-        switch (typeName) {
-            case TYPE_STRING:
-                if (value == null) {
-                    st.setNull(index, Types.VARCHAR);
-                } else {
-                    st.setString(index, (String) value);
-                }
-                break;
-            case TYPE_UUID:
-                if (value == null) {
-                    st.setNull(index, Types.VARCHAR);
-                } else {
-                    st.setString(index, value.toString());
-                }
-                break;
-            case TYPE_BOOL:
-            case TYPE_BOOLEAN:
-                if (value == null) {
-                    st.setNull(index, Types.BOOLEAN);
-                } else {
-                    st.setBoolean(index, (Boolean) value);
-                }
-                break;
-            case TYPE_INTEGER:
-            case TYPE_INT:
-                if (value == null) {
-                    st.setNull(index, Types.INTEGER);
-                } else {
-                    st.setInt(index, (Integer) value);
-                }
-                break;
-            case TYPE_LONG:
-            case TYPE_LONG_PRIM:
-                if (value == null) {
-                    st.setNull(index, Types.INTEGER);
-                } else {
-                    st.setLong(index, (Long) value);
-                }
-                break;
-            case TYPE_DATE:
-                if (value == null) {
-                    st.setNull(index, Types.INTEGER);
-                } else {
-                    st.setLong(index, ((Date) value).getTime());
-                }
-                break;
-            case TYPE_LOCAL_DATE:
-                if (value == null) {
-                    st.setNull(index, Types.INTEGER);
-                } else {
-                    st.setLong(index, ((LocalDate) value).toEpochDay());
-                }
-                break;
-            case TYPE_BIG_DECIMAL:
-                if (value == null) {
-                    st.setNull(index, Types.DECIMAL);
-                } else {
-                    st.setBigDecimal(index, (BigDecimal) value);
-                }
-                break;
-            case TYPE_ENUM:
-                if (value == null) {
-                    st.setNull(index, Types.VARCHAR);
-                } else {
-                    st.setString(index, ((Enum) value).name());
-                }
-                break;
-            default:
-                throw new IllegalStateException(BAD_FIELD_TYPE + typeName);
-        }
-    }
-
     default String buildForeignKey(Column column, ForeignKey key) {
         Objects.requireNonNull(key);
 
@@ -326,6 +395,47 @@ interface DAOProxy {
         return b.toString();
     }
 
+    /**
+     * Atomically increments value of the sequence. Connection must be in auto-commit mode.
+     *
+     * @param conn      connection
+     * @param table     sequence table
+     * @param name      sequence name
+     * @param increment increment
+     * @return new value of the sequence or empty if sequence does not exist
+     */
+    default OptionalLong incrementSequence(Connection conn, String table, String name, int increment) {
+        try {
+            conn.setAutoCommit(false);
+            try (var update = conn.prepareStatement("UPDATE " + table + " SET seq_value = seq_value + ? "
+                + "WHERE seq_name = ?");
+                 var select = conn.prepareStatement("SELECT seq_value FROM " + table + " WHERE seq_name = ?"))
+            {
+                update.setInt(1, increment);
+                update.setString(2, name);
+                if (update.executeUpdate() == 0) {
+                    conn.rollback();
+                    return OptionalLong.empty();
+                }
+
+                select.setString(1, name);
+                try (var rs = select.executeQuery()) {
+                    rs.next();
+                    var value = rs.getLong(1);
+                    conn.commit();
+                    return OptionalLong.of(value);
+                }
+            } catch (SQLException ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
     default void deleteAll(Connection connection, Class<? extends Record> table) {
         try (var statement = connection.createStatement()) {
             statement.execute("DELETE FROM " + Record.getTableName(table));
@@ -40,6 +40,7 @@ interface DAOTypes {
     String TYPE_INT         = "int";
     String TYPE_BOOL        = "boolean";
     String TYPE_BYTE_ARRAY  = "byte[]";
+    String TYPE_BLOB_REF    = "org.panteleyev.persistence.BlobRef";
 
     String TYPE_ENUM        = "*** enum ***";
 
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import org.panteleyev.persistence.annotations.Column;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps snapshots of column values of loaded records. Records are identified by reference, snapshot is discarded
+ * when the record is garbage collected.
+ */
+final class DirtyTracker {
+    private static final class RecordReference extends WeakReference<Record> {
+        private final int hash;
+
+        RecordReference(Record record, ReferenceQueue<Record> queue) {
+            super(record, queue);
+            hash = System.identityHashCode(record);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof RecordReference)) {
+                return false;
+            }
+            var record = get();
+            return record != null && record == ((RecordReference) obj).get();
+        }
+    }
+
+    private final Map<RecordReference, Object[]> snapshots = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Record> queue = new ReferenceQueue<>();
+
+    private static final Map<Class<? extends Record>, VarHandle[]> HANDLES = new ConcurrentHashMap<>();
+
+    /**
+     * Stores snapshot of the record column values.
+     *
+     * @param record record
+     */
+    void snapshot(Record record) {
+        expunge();
+        snapshots.put(new RecordReference(record, queue), getValues(record));
+    }
+
+    /**
+     * Returns columns changed since the last snapshot. Bits correspond to columns in the order of INSERT statement.
+     *
+     * @param record record
+     * @return changed columns, null if record is not tracked
+     */
+    BitSet getChangedColumns(Record record) {
+        expunge();
+
+        var snapshot = snapshots.get(new RecordReference(record, null));
+        if (snapshot == null) {
+            return null;
+        }
+
+        var values = getValues(record);
+        var changed = new BitSet(values.length);
+        for (int i = 0; i < values.length; i++) {
+            if (!isEqual(values[i], snapshot[i])) {
+                changed.set(i);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Compares column values. Lazy values are never loaded for comparison, unloaded value is equal only to itself.
+     * {@link BlobRef} values are compared by reference.
+     */
+    private static boolean isEqual(Object value, Object snapshot) {
+        if (value == snapshot) {
+            return true;
+        }
+        if (value instanceof BlobRef || snapshot instanceof BlobRef) {
+            return false;
+        }
+        if (value instanceof Lazy && snapshot instanceof Lazy) {
+            var lazy = (Lazy<?>) value;
+            var previous = (Lazy<?>) snapshot;
+            return lazy.isLoaded() && previous.isLoaded() && lazy.equals(previous);
+        }
+        return Objects.deepEquals(value, snapshot);
+    }
+
+    void clear() {
+        snapshots.clear();
+    }
+
+    int size() {
+        expunge();
+        return snapshots.size();
+    }
+
+    private Object[] getValues(Record record) {
+        var handles = HANDLES.computeIfAbsent(record.getClass(), DirtyTracker::computeHandles);
+
+        var values = new Object[handles.length];
+        for (int i = 0; i < handles.length; i++) {
+            var value = handles[i].get(record);
+            values[i] = value instanceof byte[] ? ((byte[]) value).clone() : value;
+        }
+        return values;
+    }
+
+    private static VarHandle[] computeHandles(Class<? extends Record> clazz) {
+        var handles = DAO.getColumnHandles(clazz);
+        return DAO.getColumnFields(clazz).stream()
+            .map(field -> handles.get(field.getAnnotation(Column.class).value()))
+            .toArray(VarHandle[]::new);
+    }
+
+    private void expunge() {
+        Object ref;
+        while ((ref = queue.poll()) != null) {
+            snapshots.remove(ref);
+        }
+    }
+}
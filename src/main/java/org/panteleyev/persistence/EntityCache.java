@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+/**
+ * Cache of records by primary key. Implementations must be thread safe.
+ *
+ * @param <K> type of the primary key
+ * @param <T> type of the record
+ * @see DAO#setEntityCacheFactory(EntityCacheFactory)
+ */
+public interface EntityCache<K, T extends Record<K>> {
+    /**
+     * Returns cached record.
+     *
+     * @param key primary key
+     * @return record or null if record is not cached or expired
+     */
+    T get(K key);
+
+    /**
+     * Puts record into the cache.
+     *
+     * @param key    primary key
+     * @param record record
+     */
+    void put(K key, T record);
+
+    /**
+     * Removes record from the cache.
+     *
+     * @param key primary key
+     */
+    void invalidate(K key);
+
+    /**
+     * Removes all records from the cache.
+     */
+    void invalidateAll();
+
+    /**
+     * Returns cache statistics.
+     *
+     * @return statistics
+     */
+    CacheStats getStats();
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process primary key counter. Keys of int and {@link Integer} columns are checked for overflow.
+ */
+class KeyCounter {
+    private final AtomicLong value = new AtomicLong();
+    private final boolean intKey;
+
+    KeyCounter(boolean intKey) {
+        this.intKey = intKey;
+    }
+
+    Number box(long key) {
+        return intKey ? (Number) (int) key : (Number) key;
+    }
+
+    /**
+     * Reserves range of consecutive keys.
+     *
+     * @param n number of keys
+     * @return first key of the range
+     */
+    long reserve(int n) {
+        return checkRange(value.getAndAdd(n) + 1, n);
+    }
+
+    /**
+     * Sets last used key.
+     *
+     * @param v key value
+     */
+    void set(long v) {
+        value.set(v);
+    }
+
+    long checkRange(long first, int n) {
+        if (intKey && first + n - 1 > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Primary key value is out of integer range");
+        }
+        return first;
+    }
+}
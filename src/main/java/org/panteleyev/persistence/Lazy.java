@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import org.panteleyev.persistence.annotations.Column;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * <p>Value of the lazy column, see {@link Column#lazy()}. Records retrieved from the database hold unloaded values
+ * that are fetched by primary key on the first call of {@link #get()}. Values of multiple records can be loaded by
+ * a single query using {@link DAO#load(Connection, List, String)}.</p>
+ * <p>Loaded value is cached. Value is not refreshed if the row is changed after loading.</p>
+ *
+ * @param <V> type of the value
+ */
+public final class Lazy<V> {
+    private volatile Supplier<V> loader;
+    private V value;
+
+    private Lazy(V value, Supplier<V> loader) {
+        this.value = value;
+        this.loader = loader;
+    }
+
+    Lazy(Supplier<V> loader) {
+        this(null, Objects.requireNonNull(loader));
+    }
+
+    /**
+     * Creates loaded value. This method should be used to create records that are inserted or updated.
+     *
+     * @param <V>   type of the value
+     * @param value value
+     * @return loaded value
+     */
+    public static <V> Lazy<V> of(V value) {
+        return new Lazy<>(value, null);
+    }
+
+    /**
+     * Returns value loading it if necessary. Value of the row deleted before loading is <code>null</code>.
+     *
+     * @return value
+     */
+    public V get() {
+        if (loader != null) {
+            synchronized (this) {
+                var l = loader;
+                if (l != null) {
+                    value = l.get();
+                    loader = null;
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns true if value is loaded.
+     *
+     * @return true if value is loaded
+     */
+    public boolean isLoaded() {
+        return loader == null;
+    }
+
+    /**
+     * Sets value unless it is already loaded.
+     *
+     * @param value value
+     */
+    synchronized void set(V value) {
+        if (loader != null) {
+            this.value = value;
+            loader = null;
+        }
+    }
+
+    /**
+     * Compares values, unloaded values are loaded.
+     *
+     * @param o object to compare with
+     * @return true if values are equal
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Lazy)) {
+            return false;
+        }
+        return Objects.deepEquals(get(), ((Lazy<?>) o).get());
+    }
+
+    @Override
+    public int hashCode() {
+        var v = get();
+        return v instanceof byte[] ? Arrays.hashCode((byte[]) v) : Objects.hashCode(v);
+    }
+
+    @Override
+    public String toString() {
+        return isLoaded() ? "Lazy[" + get() + "]" : "Lazy[not loaded]";
+    }
+}
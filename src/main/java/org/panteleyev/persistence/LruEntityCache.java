@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Default entity cache: bounded LRU map with optional expiration.
+ *
+ * @param <K> type of the primary key
+ * @param <T> type of the record
+ */
+final class LruEntityCache<K, T extends Record<K>> implements EntityCache<K, T> {
+    private static final class Entry<T> {
+        private final T record;
+        private final long expires;
+
+        Entry(T record, long expires) {
+            this.record = record;
+            this.expires = expires;
+        }
+    }
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier ticker;
+
+    private final Map<K, Entry<T>> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    LruEntityCache(int maxSize, long ttl, TimeUnit unit) {
+        this(maxSize, ttl, unit, System::nanoTime);
+    }
+
+    LruEntityCache(int maxSize, long ttl, TimeUnit unit, LongSupplier ticker) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be >= 1");
+        }
+        if (ttl < 0) {
+            throw new IllegalArgumentException("Time to live must be >= 0");
+        }
+
+        this.maxSize = maxSize;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.ticker = ticker;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<T>> eldest) {
+                if (size() > LruEntityCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+        };
+    }
+
+    @Override
+    public T get(K key) {
+        T record = null;
+        synchronized (entries) {
+            var entry = entries.get(key);
+            if (entry != null) {
+                if (ttlNanos != 0 && ticker.getAsLong() - entry.expires >= 0) {
+                    entries.remove(key);
+                    evictions.increment();
+                } else {
+                    record = entry.record;
+                }
+            }
+        }
+
+        if (record == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return record;
+    }
+
+    @Override
+    public void put(K key, T record) {
+        var entry = new Entry<>(record, ttlNanos == 0 ? 0 : ticker.getAsLong() + ttlNanos);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    @Override
+    public void invalidate(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
@@ -33,14 +33,15 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Types;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.function.BiFunction;
+import java.util.OptionalLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 class MySQLProxy implements DAOProxy, DAOTypes {
-    private static final Map<String, BiFunction<ResultSet, String, ?>> RESULT_SET_READERS = Map.ofEntries(
+    private static final Map<String, ResultSetReader<?>> RESULT_SET_READERS = Map.ofEntries(
         Map.entry(TYPE_STRING, OBJECT_READER),
         Map.entry(TYPE_INTEGER, OBJECT_READER),
         Map.entry(TYPE_INT, INT_READER),
@@ -55,10 +56,37 @@ class MySQLProxy implements DAOProxy, DAOTypes {
         Map.entry(TYPE_UUID, UUID_STRING_READER)
     );
 
-    public Map<String, BiFunction<ResultSet, String, ?>> getReaderMap() {
+    private static final Map<String, ParameterWriter> PARAMETER_WRITERS = Map.ofEntries(
+        Map.entry(TYPE_STRING, STRING_WRITER),
+        Map.entry(TYPE_INTEGER, INT_WRITER),
+        Map.entry(TYPE_INT, INT_WRITER),
+        Map.entry(TYPE_LONG, LONG_WRITER),
+        Map.entry(TYPE_LONG_PRIM, LONG_WRITER),
+        Map.entry(TYPE_BOOL, BOOL_WRITER),
+        Map.entry(TYPE_BOOLEAN, BOOL_WRITER),
+        Map.entry(TYPE_BIG_DECIMAL, BIG_DECIMAL_WRITER),
+        Map.entry(TYPE_DATE, DATE_WRITER),
+        Map.entry(TYPE_LOCAL_DATE, LOCAL_DATE_WRITER),
+        Map.entry(TYPE_BYTE_ARRAY, VARBINARY_WRITER),
+        Map.entry(TYPE_BLOB_REF, BINARY_STREAM_WRITER),
+        Map.entry(TYPE_UUID, UUID_STRING_WRITER)
+    );
+
+    private static final int MAX_PARAMETER_COUNT = 65535;
+
+    private static final Pattern VERSION_PATTERN = Pattern.compile("^(\\d+)\\.(\\d+)\\.(\\d+)");
+    private static final String ROW_ALIAS = "new_row";
+
+    private volatile boolean rowAlias;
+
+    public Map<String, ResultSetReader<?>> getReaderMap() {
         return RESULT_SET_READERS;
     }
 
+    public Map<String, ParameterWriter> getWriterMap() {
+        return PARAMETER_WRITERS;
+    }
+
     public String getColumnString(Column column, PrimaryKey primaryKey, ForeignKey foreignKey, String typeName,
                                   List<String> constraints)
     {
@@ -107,6 +135,9 @@ class MySQLProxy implements DAOProxy, DAOTypes {
                     .append(column.length())
                     .append(")");
                 break;
+            case TYPE_BLOB_REF:
+                b.append("LONGBLOB");
+                break;
             case TYPE_UUID:
                 if (column.storeUuidAsBinary()) {
                     b.append("BINARY(16)");
@@ -120,6 +151,9 @@ class MySQLProxy implements DAOProxy, DAOTypes {
 
         if (primaryKey != null) {
             b.append(" PRIMARY KEY");
+            if (primaryKey.isAutoIncrement() && primaryKey.isGenerated() && AUTO_INCREMENT_TYPES.contains(typeName)) {
+                b.append(" AUTO_INCREMENT");
+            }
         }
 
         if (!column.nullable()) {
@@ -147,30 +181,115 @@ class MySQLProxy implements DAOProxy, DAOTypes {
         }
     }
 
+    /**
+     * MySQL driver reads the whole result set into memory unless fetch size is set to {@link Integer#MIN_VALUE}.
+     * Such streaming mode is used when fetch size is not specified. Positive fetch size is passed to the driver and
+     * takes effect with server side cursors, i.e. <code>useCursorFetch=true</code>.
+     */
     @Override
-    public void setFieldData(PreparedStatement st, int index, Object value, String typeName) throws SQLException {
-        switch (typeName) {
-            case TYPE_BYTE_ARRAY:
-                if (value == null) {
-                    st.setNull(index, Types.VARBINARY);
-                } else {
-                    st.setBytes(index, (byte[]) value);
-                }
-                break;
+    public PreparedStatement prepareStreamingStatement(Connection conn, String sql, int fetchSize)
+        throws SQLException
+    {
+        var st = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        st.setFetchSize(fetchSize > 0 ? fetchSize : Integer.MIN_VALUE);
+        return st;
+    }
 
-            default:
-                DAOProxy.super.setFieldData(st, index, value, typeName);
-                break;
+    /**
+     * Multi-row insert statement is limited by <code>max_allowed_packet</code> server variable.
+     */
+    @Override
+    public long getMaxMultiRowInsertLength(Connection conn) throws SQLException {
+        try (var st = conn.createStatement(); var rs = st.executeQuery("SELECT @@max_allowed_packet")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    @Override
+    public void setServerVersion(String version) {
+        rowAlias = supportsRowAlias(version);
+    }
+
+    /**
+     * Returns true if server supports row alias in <code>INSERT ... ON DUPLICATE KEY UPDATE</code>, i.e. it is
+     * MySQL 8.0.19 or later. MariaDB reports version like <code>5.5.5-10.6.12-MariaDB</code> and does not support it.
+     */
+    static boolean supportsRowAlias(String version) {
+        if (version == null || version.contains("MariaDB")) {
+            return false;
+        }
+        var matcher = VERSION_PATTERN.matcher(version);
+        if (!matcher.find()) {
+            return false;
+        }
+        var major = Integer.parseInt(matcher.group(1));
+        var minor = Integer.parseInt(matcher.group(2));
+        var patch = Integer.parseInt(matcher.group(3));
+        return major > 8 || (major == 8 && (minor > 0 || patch >= 19));
+    }
+
+    /**
+     * New values are referenced by the row alias. <code>VALUES(column)</code> function is deprecated since
+     * MySQL 8.0.20 and is used only for older servers and MariaDB.
+     */
+    @Override
+    public String getUpsertClause(String primaryKey, List<String> columns) {
+        if (columns.isEmpty()) {
+            return " ON DUPLICATE KEY UPDATE " + primaryKey + "=" + primaryKey;
+        }
+
+        if (rowAlias) {
+            return columns.stream()
+                .map(c -> c + "=" + ROW_ALIAS + "." + c)
+                .collect(Collectors.joining(",", " AS " + ROW_ALIAS + " ON DUPLICATE KEY UPDATE ", ""));
+        } else {
+            return columns.stream()
+                .map(c -> c + "=VALUES(" + c + ")")
+                .collect(Collectors.joining(",", " ON DUPLICATE KEY UPDATE ", ""));
+        }
+    }
+
+    /**
+     * Sequence is incremented by a single UPDATE statement. New value is stored by <code>LAST_INSERT_ID(expr)</code>
+     * in the session and retrieved without locking the sequence row again.
+     */
+    @Override
+    public OptionalLong incrementSequence(Connection conn, String table, String name, int increment) {
+        try (var update = conn.prepareStatement("UPDATE " + table
+            + " SET seq_value = LAST_INSERT_ID(seq_value + ?) WHERE seq_name = ?"))
+        {
+            update.setInt(1, increment);
+            update.setString(2, name);
+            if (update.executeUpdate() == 0) {
+                return OptionalLong.empty();
+            }
+
+            try (var st = conn.createStatement(); var rs = st.executeQuery("SELECT LAST_INSERT_ID()")) {
+                rs.next();
+                return OptionalLong.of(rs.getLong(1));
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
         }
     }
 
+    @Override
+    public boolean supportsBatchGeneratedKeys() {
+        return true;
+    }
+
+    @Override
+    public int getMaxParameterCount() {
+        return MAX_PARAMETER_COUNT;
+    }
+
     @Override
     public String getSelectColumnString(Field field) {
         var column = field.getAnnotation(Column.class);
         Objects.requireNonNull(column, FIELD_NOT_ANNOTATED + field.getName());
 
         if (field.getType().getTypeName().equals(TYPE_UUID) && column.storeUuidAsBinary()) {
-            return "BIN_TO_UUID(" + column.value() + ") AS " + column.value();
+            return "BIN_TO_UUID(" + column.value() + getSwapFlag(column) + ") AS " + column.value();
         } else {
             return column.value();
         }
@@ -182,7 +301,7 @@ class MySQLProxy implements DAOProxy, DAOTypes {
         Objects.requireNonNull(column, FIELD_NOT_ANNOTATED + field.getName());
 
         if (field.getType().getTypeName().equals(TYPE_UUID) && column.storeUuidAsBinary()) {
-            return "UUID_TO_BIN(?)";
+            return "UUID_TO_BIN(?" + getSwapFlag(column) + ")";
         } else {
             return "?";
         }
@@ -193,15 +312,7 @@ class MySQLProxy implements DAOProxy, DAOTypes {
         return getInsertColumnPattern(field);
     }
 
-    @Override
-    public String getWhereColumnString(Field field) {
-        var column = field.getAnnotation(Column.class);
-        Objects.requireNonNull(column, FIELD_NOT_ANNOTATED + field.getName());
-
-        if (field.getType().getTypeName().equals(TYPE_UUID) && column.storeUuidAsBinary()) {
-            return "BIN_TO_UUID(" + column.value() + ")";
-        } else {
-            return column.value();
-        }
+    private static String getSwapFlag(Column column) {
+        return column.swapUuidTimeParts() ? ", 1" : "";
     }
 }
@@ -0,0 +1,444 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import org.panteleyev.persistence.annotations.Column;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * <p>Query builder for simple criteria queries. Query is created by {@link DAO#select(Class)}:</p>
+ * <pre>
+ * var records = dao.select(Book.class)
+ *     .where("status", Query.Operator.EQ, Status.ACTIVE)
+ *     .orderBy("date")
+ *     .limit(100)
+ *     .list();
+ * </pre>
+ * <p>Column names are validated against {@link Column} annotations of the record class. Conditions are combined
+ * with <code>AND</code>. SQL text and parameter writers are cached by DAO per query shape, i.e. the sequence of
+ * columns, operators, sort order and presence of limit and offset, so repeated queries of the same shape only bind
+ * parameters. Number of parameters in <code>IN</code> list is rounded up to power of two similar to
+ * {@link DAO#getAll(Connection, Collection, Class)}.</p>
+ * <p>Query instances are mutable and not thread safe.</p>
+ *
+ * @param <T> type of the record
+ */
+public final class Query<T extends Record> {
+    /**
+     * Comparison operator of the condition.
+     */
+    public enum Operator {
+        EQ("="),
+        NE("<>"),
+        LT("<"),
+        LE("<="),
+        GT(">"),
+        GE(">="),
+        /**
+         * Applicable to string columns only.
+         */
+        LIKE(" LIKE "),
+        /**
+         * Value must be a non-empty collection of at most {@value DAO#MAX_IN_LIST_SIZE} elements.
+         */
+        IN(" IN "),
+        /**
+         * Condition does not have value.
+         */
+        IS_NULL(" IS NULL"),
+        /**
+         * Condition does not have value.
+         */
+        IS_NOT_NULL(" IS NOT NULL");
+
+        private final String sql;
+
+        Operator(String sql) {
+            this.sql = sql;
+        }
+
+        String getSql() {
+            return sql;
+        }
+
+        boolean hasValue() {
+            return this != IS_NULL && this != IS_NOT_NULL;
+        }
+    }
+
+    static final class Condition {
+        private final Field field;
+        private final Operator operator;
+        private final Object value;
+
+        Condition(Field field, Operator operator, Object value) {
+            this.field = field;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        Field getField() {
+            return field;
+        }
+
+        Operator getOperator() {
+            return operator;
+        }
+
+        /**
+         * Returns number of statement parameters used by this condition.
+         *
+         * @return number of parameters
+         */
+        int getParameterCount() {
+            if (operator == Operator.IN) {
+                return DAO.getInListSize(((Collection<?>) value).size());
+            } else {
+                return operator.hasValue() ? 1 : 0;
+            }
+        }
+    }
+
+    static final class Order {
+        private final Field field;
+        private final boolean descending;
+
+        Order(Field field, boolean descending) {
+            this.field = field;
+            this.descending = descending;
+        }
+
+        Field getField() {
+            return field;
+        }
+
+        boolean isDescending() {
+            return descending;
+        }
+    }
+
+    /**
+     * Compiled query shape: SQL text and parameter writers of the conditions.
+     */
+    static final class Statement {
+        private final String sql;
+        private final DAOProxy.ParameterWriter[] writers;
+
+        Statement(String sql, DAOProxy.ParameterWriter[] writers) {
+            this.sql = sql;
+            this.writers = writers;
+        }
+
+        String getSql() {
+            return sql;
+        }
+
+        DAOProxy.ParameterWriter[] getWriters() {
+            return writers;
+        }
+    }
+
+    private final DAO dao;
+    private final Class<T> clazz;
+    private final List<Condition> conditions = new ArrayList<>();
+    private final List<Order> orders = new ArrayList<>();
+    private int limit = -1;
+    private int offset = 0;
+
+    Query(DAO dao, Class<T> clazz) {
+        this.dao = dao;
+        this.clazz = clazz;
+    }
+
+    /**
+     * Adds condition without value, i.e. {@link Operator#IS_NULL} or {@link Operator#IS_NOT_NULL}.
+     *
+     * @param column   column name
+     * @param operator operator
+     * @return this query
+     * @throws IllegalArgumentException if column does not exist or operator requires value
+     */
+    public Query<T> where(String column, Operator operator) {
+        if (operator.hasValue()) {
+            throw new IllegalArgumentException("Operator " + operator + " requires value");
+        }
+        conditions.add(new Condition(getField(column), operator, null));
+        return this;
+    }
+
+    /**
+     * Adds condition. For {@link Operator#IN} value must be a collection of values of the column type.
+     *
+     * @param column   column name
+     * @param operator operator
+     * @param value    value, must not be null
+     * @return this query
+     * @throws IllegalArgumentException if column does not exist or value does not match the column type
+     */
+    public Query<T> where(String column, Operator operator, Object value) {
+        if (!operator.hasValue()) {
+            throw new IllegalArgumentException("Operator " + operator + " does not accept value");
+        }
+
+        var field = getField(column);
+        if (operator == Operator.IN) {
+            if (!(value instanceof Collection)) {
+                throw new IllegalArgumentException("Operator IN requires collection of values");
+            }
+            var values = List.copyOf((Collection<?>) value);
+            if (values.isEmpty() || values.size() > DAO.MAX_IN_LIST_SIZE) {
+                throw new IllegalArgumentException("Number of IN values must be between 1 and "
+                    + DAO.MAX_IN_LIST_SIZE);
+            }
+            values.forEach(v -> checkValue(field, v));
+            value = values;
+        } else if (operator == Operator.LIKE) {
+            if (field.getType() != String.class || !(value instanceof String)) {
+                throw new IllegalArgumentException("Operator LIKE requires string column and pattern");
+            }
+        } else {
+            checkValue(field, value);
+        }
+
+        conditions.add(new Condition(field, operator, value));
+        return this;
+    }
+
+    /**
+     * Adds ascending sort order by the column.
+     *
+     * @param column column name
+     * @return this query
+     * @throws IllegalArgumentException if column does not exist
+     */
+    public Query<T> orderBy(String column) {
+        orders.add(new Order(getField(column), false));
+        return this;
+    }
+
+    /**
+     * Adds descending sort order by the column.
+     *
+     * @param column column name
+     * @return this query
+     * @throws IllegalArgumentException if column does not exist
+     */
+    public Query<T> orderByDescending(String column) {
+        orders.add(new Order(getField(column), true));
+        return this;
+    }
+
+    /**
+     * Limits number of returned records.
+     *
+     * @param limit maximum number of records
+     * @return this query
+     * @throws IllegalArgumentException if limit is less than 1
+     */
+    public Query<T> limit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be >= 1");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Skips the specified number of records. Offset can be used only together with {@link #limit(int)}.
+     *
+     * @param offset number of records to skip
+     * @return this query
+     * @throws IllegalArgumentException if offset is negative
+     */
+    public Query<T> offset(int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset must be >= 0");
+        }
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * Executes query.
+     *
+     * @param conn connection
+     * @return list of records
+     */
+    public List<T> list(Connection conn) {
+        return dao.select(conn, this, limit);
+    }
+
+    /**
+     * Executes query using new connection.
+     *
+     * @return list of records
+     */
+    public List<T> list() {
+        try (var conn = dao.getConnection()) {
+            return list(conn);
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Returns the first record of the query result. Limit of the query is ignored.
+     *
+     * @param conn connection
+     * @return first record
+     */
+    public Optional<T> first(Connection conn) {
+        var result = dao.select(conn, this, 1);
+        return result.isEmpty() ? Optional.empty() : Optional.of(result.get(0));
+    }
+
+    /**
+     * Returns the first record of the query result using new connection. Limit of the query is ignored.
+     *
+     * @return first record
+     */
+    public Optional<T> first() {
+        try (var conn = dao.getConnection()) {
+            return first(conn);
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    Class<T> getRecordClass() {
+        return clazz;
+    }
+
+    List<Condition> getConditions() {
+        return conditions;
+    }
+
+    List<Order> getOrders() {
+        return orders;
+    }
+
+    int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns query shape. Queries with equal shapes share SQL text and parameter writers.
+     *
+     * @param limit effective limit
+     * @return query shape
+     */
+    String getShape(int limit) {
+        if (offset != 0 && limit < 0) {
+            throw new IllegalStateException("Offset requires limit");
+        }
+
+        var shape = new StringBuilder();
+        for (var condition : conditions) {
+            shape.append(condition.field.getAnnotation(Column.class).value())
+                .append(' ').append(condition.operator.name());
+            if (condition.operator == Operator.IN) {
+                shape.append(' ').append(condition.getParameterCount());
+            }
+            shape.append(';');
+        }
+        shape.append('|');
+        for (var order : orders) {
+            shape.append(order.field.getAnnotation(Column.class).value())
+                .append(order.descending ? " DESC;" : ";");
+        }
+        shape.append('|');
+        if (limit > 0) {
+            shape.append(offset != 0 ? "LIMIT OFFSET" : "LIMIT");
+        }
+        return shape.toString();
+    }
+
+    /**
+     * Binds query parameters.
+     *
+     * @param st      statement
+     * @param writers parameter writers of the compiled shape
+     * @param limit   effective limit
+     * @throws SQLException in case of SQL error
+     */
+    void bind(PreparedStatement st, DAOProxy.ParameterWriter[] writers, int limit) throws SQLException {
+        int index = 1;
+        for (var condition : conditions) {
+            if (condition.operator == Operator.IN) {
+                var values = (List<?>) condition.value;
+                var count = condition.getParameterCount();
+                // Unused parameters are filled with the last value
+                for (int i = 0; i < count; i++) {
+                    writers[index - 1].write(st, index, values.get(Math.min(i, values.size() - 1)));
+                    index++;
+                }
+            } else if (condition.operator.hasValue()) {
+                writers[index - 1].write(st, index, condition.value);
+                index++;
+            }
+        }
+
+        if (limit > 0) {
+            st.setInt(index++, limit);
+            if (offset != 0) {
+                st.setInt(index, offset);
+            }
+        }
+    }
+
+    private Field getField(String column) {
+        for (var field : DAO.getColumnFields(clazz)) {
+            if (field.getAnnotation(Column.class).value().equals(column)) {
+                if (DAO.isDeferred(field)) {
+                    throw new IllegalArgumentException("Column " + column + " is not selected");
+                }
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Class " + clazz.getName() + " does not have column " + column);
+    }
+
+    private static void checkValue(Field field, Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null value, use IS_NULL or IS_NOT_NULL operator");
+        }
+
+        var type = MethodType.methodType(field.getType()).wrap().returnType();
+        if (!type.isInstance(value)) {
+            throw new IllegalArgumentException("Value of type " + value.getClass().getName()
+                + " does not match column " + field.getAnnotation(Column.class).value());
+        }
+    }
+}
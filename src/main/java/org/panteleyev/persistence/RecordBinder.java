@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import org.panteleyev.persistence.annotations.Column;
+import org.panteleyev.persistence.annotations.PrimaryKey;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import static org.panteleyev.persistence.DAOTypes.TYPE_BOOL;
+import static org.panteleyev.persistence.DAOTypes.TYPE_INT;
+import static org.panteleyev.persistence.DAOTypes.TYPE_LONG_PRIM;
+
+/**
+ * Binds record fields to prepared statement parameters. Binder is compiled once per record class for INSERT and
+ * UPDATE parameter layouts, so each row is bound by precomputed field handles and parameter writers. Primitive
+ * fields are bound without boxing.
+ */
+final class RecordBinder {
+    @FunctionalInterface
+    private interface ColumnBinder {
+        void bind(PreparedStatement st, int index, Object record) throws SQLException;
+    }
+
+    private final String className;
+
+    // Column order of INSERT statement
+    private final ColumnBinder[] insertBinders;
+    // Column order of INSERT statement without primary key generated by the database
+    private final ColumnBinder[] generatedInsertBinders;
+    // Column order of UPDATE statement: all columns except primary key followed by primary key, null if there is no
+    // primary key
+    private final ColumnBinder[] updateBinders;
+
+    private final ColumnBinder primaryKeyBinder;
+    private final DAOProxy.ParameterWriter primaryKeyWriter;
+
+    private RecordBinder(String className, ColumnBinder[] insertBinders, ColumnBinder[] generatedInsertBinders,
+                         ColumnBinder[] updateBinders, ColumnBinder primaryKeyBinder,
+                         DAOProxy.ParameterWriter primaryKeyWriter)
+    {
+        this.className = className;
+        this.insertBinders = insertBinders;
+        this.generatedInsertBinders = generatedInsertBinders;
+        this.updateBinders = updateBinders;
+        this.primaryKeyBinder = primaryKeyBinder;
+        this.primaryKeyWriter = primaryKeyWriter;
+    }
+
+    /**
+     * Creates binder for the record class.
+     *
+     * @param clazz   record class
+     * @param columns column fields in the order of INSERT statement
+     * @param proxy   database proxy
+     * @return record binder
+     */
+    static RecordBinder of(Class<? extends Record> clazz, List<Field> columns, DAOProxy proxy) {
+        if (columns.isEmpty()) {
+            throw new IllegalStateException("Class " + clazz.getName() + " has no column annotations");
+        }
+
+        var handles = DAO.getColumnHandles(clazz);
+
+        var insertBinders = new ColumnBinder[columns.size()];
+        var updateBinders = new ArrayList<ColumnBinder>(columns.size());
+        ColumnBinder primaryKeyBinder = null;
+        DAOProxy.ParameterWriter primaryKeyWriter = null;
+
+        for (int i = 0; i < insertBinders.length; i++) {
+            var field = columns.get(i);
+            var handle = handles.get(field.getAnnotation(Column.class).value());
+            var writer = getWriter(field, proxy);
+
+            insertBinders[i] = newBinder(handle, writer);
+            if (field.isAnnotationPresent(PrimaryKey.class)) {
+                primaryKeyBinder = insertBinders[i];
+                primaryKeyWriter = writer;
+            } else {
+                updateBinders.add(insertBinders[i]);
+            }
+        }
+
+        var generatedInsertBinders = updateBinders.toArray(new ColumnBinder[0]);
+        if (primaryKeyBinder != null) {
+            updateBinders.add(primaryKeyBinder);
+        }
+
+        return new RecordBinder(clazz.getName(), insertBinders, generatedInsertBinders,
+            primaryKeyBinder == null ? null : updateBinders.toArray(new ColumnBinder[0]),
+            primaryKeyBinder, primaryKeyWriter);
+    }
+
+    private static DAOProxy.ParameterWriter getWriter(Field field, DAOProxy proxy) {
+        var writer = proxy.getParameterWriter(DAO.getValueType(field));
+        if (!DAO.isLazy(field)) {
+            return writer;
+        }
+        // Batch writes load values in advance, single record is loaded on demand
+        return (st, index, value) -> writer.write(st, index, value == null ? null : ((Lazy<?>) value).get());
+    }
+
+    private static ColumnBinder newBinder(VarHandle handle, DAOProxy.ParameterWriter writer) {
+        switch (handle.varType().getName()) {
+            case TYPE_INT:
+                return (st, index, record) -> st.setInt(index, (int) handle.get(record));
+            case TYPE_LONG_PRIM:
+                return (st, index, record) -> st.setLong(index, (long) handle.get(record));
+            case TYPE_BOOL:
+                return (st, index, record) -> st.setBoolean(index, (boolean) handle.get(record));
+            default:
+                return (st, index, record) -> writer.write(st, index, handle.get(record));
+        }
+    }
+
+    /**
+     * Binds all columns in the order of INSERT statement.
+     *
+     * @param record record
+     * @param st     prepared statement
+     * @param index  index of the first parameter
+     * @return index of the next parameter
+     * @throws SQLException in case of SQL error
+     */
+    int bindInsert(Record record, PreparedStatement st, int index) throws SQLException {
+        return bind(insertBinders, record, st, index);
+    }
+
+    /**
+     * Binds all columns except primary key in the order of INSERT statement.
+     *
+     * @param record record
+     * @param st     prepared statement
+     * @param index  index of the first parameter
+     * @return index of the next parameter
+     * @throws SQLException in case of SQL error
+     */
+    int bindGeneratedInsert(Record record, PreparedStatement st, int index) throws SQLException {
+        return bind(generatedInsertBinders, record, st, index);
+    }
+
+    /**
+     * Binds all columns in the order of UPDATE statement, i.e. primary key is the last.
+     *
+     * @param record record
+     * @param st     prepared statement
+     * @param index  index of the first parameter
+     * @return index of the next parameter
+     * @throws SQLException in case of SQL error
+     */
+    int bindUpdate(Record record, PreparedStatement st, int index) throws SQLException {
+        return bind(getUpdateBinders(), record, st, index);
+    }
+
+    /**
+     * Binds the specified columns in the order of INSERT statement.
+     *
+     * @param record  record
+     * @param st      prepared statement
+     * @param index   index of the first parameter
+     * @param columns indexes of columns to bind
+     * @return index of the next parameter
+     * @throws SQLException in case of SQL error
+     */
+    int bindColumns(Record record, PreparedStatement st, int index, BitSet columns) throws SQLException {
+        for (int i = columns.nextSetBit(0); i >= 0; i = columns.nextSetBit(i + 1)) {
+            insertBinders[i].bind(st, index++, record);
+        }
+        return index;
+    }
+
+    /**
+     * Binds primary key of the record.
+     *
+     * @param record record
+     * @param st     prepared statement
+     * @param index  parameter index
+     * @throws SQLException in case of SQL error
+     */
+    void bindPrimaryKey(Record record, PreparedStatement st, int index) throws SQLException {
+        getUpdateBinders();
+        primaryKeyBinder.bind(st, index, record);
+    }
+
+    /**
+     * Binds primary key value.
+     *
+     * @param value primary key value
+     * @param st    prepared statement
+     * @param index parameter index
+     * @throws SQLException in case of SQL error
+     */
+    void bindPrimaryKeyValue(Object value, PreparedStatement st, int index) throws SQLException {
+        getUpdateBinders();
+        primaryKeyWriter.write(st, index, value);
+    }
+
+    private ColumnBinder[] getUpdateBinders() {
+        if (updateBinders == null) {
+            throw new IllegalStateException("No primary key defined for " + className);
+        }
+        return updateBinders;
+    }
+
+    private static int bind(ColumnBinder[] binders, Record record, PreparedStatement st, int index)
+        throws SQLException
+    {
+        for (var binder : binders) {
+            binder.bind(st, index++, record);
+        }
+        return index;
+    }
+}
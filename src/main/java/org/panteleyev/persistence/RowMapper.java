@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import org.panteleyev.persistence.annotations.Column;
+import org.panteleyev.persistence.annotations.PrimaryKey;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import static org.panteleyev.persistence.DAOTypes.TYPE_BOOL;
+import static org.panteleyev.persistence.DAOTypes.TYPE_INT;
+import static org.panteleyev.persistence.DAOTypes.TYPE_LONG_PRIM;
+
+/**
+ * Converts result set rows into records. Mapper is compiled once per record class from the SELECT column order, so
+ * each row is read by column index with readers resolved in advance.
+ *
+ * @param <T> type of the record or projection
+ */
+final class RowMapper<T> {
+    @FunctionalInterface
+    private interface ColumnAssigner {
+        void assign(ResultSet rs, Object record) throws SQLException;
+    }
+
+    /**
+     * Creates value of the column that is not selected: unloaded {@link Lazy} or stored {@link BlobRef}.
+     */
+    @FunctionalInterface
+    interface LazyFactory {
+        Object newLazy(Field field, Object primaryKey);
+    }
+
+    /**
+     * Lazy and {@link BlobRef} columns of the record class and reader of the primary key they are loaded by.
+     */
+    private static final class LazyColumns {
+        private final Map<String, Field> fields = new HashMap<>();
+        private LazyFactory factory;
+        private DAOProxy.ResultSetReader<?> primaryKeyReader;
+        private int primaryKeyIndex;
+
+        Object newLazy(Field field, ResultSet rs) throws SQLException {
+            return RowMapper.newLazy(factory, field, primaryKeyReader, primaryKeyIndex, rs);
+        }
+
+        MethodHandle getHandle(Field field) {
+            return MethodHandles.insertArguments(NEW_LAZY, 0, factory, field, primaryKeyReader, primaryKeyIndex)
+                .asType(MethodType.methodType(field.getType(), ResultSet.class));
+        }
+    }
+
+    private static final MethodHandle GET_INT;
+    private static final MethodHandle GET_LONG;
+    private static final MethodHandle READ;
+    private static final MethodHandle READ_BOOL;
+    private static final MethodHandle NEW_LAZY;
+
+    static {
+        try {
+            var lookup = MethodHandles.lookup();
+            GET_INT = lookup.findVirtual(ResultSet.class, "getInt",
+                MethodType.methodType(int.class, int.class));
+            GET_LONG = lookup.findVirtual(ResultSet.class, "getLong",
+                MethodType.methodType(long.class, int.class));
+            READ = lookup.findVirtual(DAOProxy.ResultSetReader.class, "read",
+                MethodType.methodType(Object.class, ResultSet.class, int.class));
+            READ_BOOL = lookup.findStatic(RowMapper.class, "readBoolean",
+                MethodType.methodType(boolean.class, DAOProxy.ResultSetReader.class, ResultSet.class, int.class));
+            NEW_LAZY = lookup.findStatic(RowMapper.class, "newLazy", MethodType.methodType(Object.class,
+                LazyFactory.class, Field.class, DAOProxy.ResultSetReader.class, int.class, ResultSet.class));
+        } catch (ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    // Field assignment: no-argument constructor of type ()Object and column assigners
+    private final MethodHandle constructor;
+    private final ColumnAssigner[] assigners;
+
+    // Constructor parameters: record builder adapted to type (ResultSet)Object
+    private final MethodHandle factory;
+
+    // Snapshots of mapped records, null if dirty tracking is disabled
+    private final DirtyTracker tracker;
+
+    private RowMapper(MethodHandle constructor, ColumnAssigner[] assigners, DirtyTracker tracker) {
+        this.constructor = constructor;
+        this.assigners = assigners;
+        this.factory = null;
+        this.tracker = tracker;
+    }
+
+    private RowMapper(MethodHandle factory, DirtyTracker tracker) {
+        this.constructor = null;
+        this.assigners = null;
+        this.factory = factory;
+        this.tracker = tracker;
+    }
+
+    /**
+     * Creates row mapper for the record class.
+     *
+     * @param clazz       record class
+     * @param columns     column fields in the order of SELECT statement
+     * @param proxy       database proxy
+     * @param tracker     dirty tracker, null if dirty tracking is disabled
+     * @param lazyFactory factory of values of lazy and BlobRef columns
+     * @param <T>         type of the record
+     * @return row mapper
+     */
+    static <T extends Record> RowMapper<T> of(Class<T> clazz, List<Field> columns, DAOProxy proxy,
+                                              DirtyTracker tracker, LazyFactory lazyFactory)
+    {
+        return of(clazz, columns, proxy, tracker, lazyFactory, false);
+    }
+
+    /**
+     * Creates row mapper for a subset of columns. Record builder parameters of columns that are not selected
+     * receive <code>null</code>, zero or <code>false</code>, fields of such columns are not assigned.
+     *
+     * @param clazz       record or projection class
+     * @param columns     column fields in the order of SELECT statement
+     * @param proxy       database proxy
+     * @param tracker     dirty tracker, null if dirty tracking is disabled or class is not a record
+     * @param lazyFactory factory of values of lazy and BlobRef columns, null if class is not a record
+     * @param <T>         type of the record or projection
+     * @return row mapper
+     */
+    static <T> RowMapper<T> ofProjection(Class<T> clazz, List<Field> columns, DAOProxy proxy,
+                                         DirtyTracker tracker, LazyFactory lazyFactory)
+    {
+        return of(clazz, columns, proxy, tracker, lazyFactory, true);
+    }
+
+    private static <T> RowMapper<T> of(Class<T> clazz, List<Field> columns, DAOProxy proxy,
+                                       DirtyTracker tracker, LazyFactory lazyFactory, boolean partial)
+    {
+        if (columns.isEmpty()) {
+            throw new IllegalStateException("Class " + clazz.getName() + " has no column annotations");
+        }
+
+        var lazyColumns = getLazyColumns(clazz, columns, proxy, lazyFactory);
+        var builder = DAO.getConstructorHandle(clazz);
+        if (builder != null) {
+            return ofConstructor(builder, columns, proxy, tracker, lazyColumns, partial);
+        } else {
+            return ofFields(clazz, columns, proxy, tracker, lazyColumns);
+        }
+    }
+
+    private static LazyColumns getLazyColumns(Class<?> clazz, List<Field> columns, DAOProxy proxy,
+                                              LazyFactory lazyFactory)
+    {
+        var lazyColumns = new LazyColumns();
+        if (lazyFactory == null) {
+            return lazyColumns;
+        }
+
+        for (var field : clazz.getDeclaredFields()) {
+            var column = field.getAnnotation(Column.class);
+            if (column != null && DAO.isDeferred(field)) {
+                lazyColumns.fields.put(column.value(), field);
+            }
+        }
+
+        if (!lazyColumns.fields.isEmpty()) {
+            lazyColumns.factory = lazyFactory;
+            for (int i = 0; i < columns.size(); i++) {
+                var field = columns.get(i);
+                if (field.isAnnotationPresent(PrimaryKey.class)) {
+                    lazyColumns.primaryKeyReader = proxy.getColumnReader(field.getType());
+                    lazyColumns.primaryKeyIndex = i + 1;
+                }
+            }
+        }
+        return lazyColumns;
+    }
+
+    /**
+     * Adapts record builder to a single method handle of type (ResultSet)Object. Each constructor parameter is
+     * filtered by the reader of its column, primitive int and long parameters are read without boxing.
+     */
+    private static <T> RowMapper<T> ofConstructor(DAO.ConstructorHandle builder, List<Field> columns,
+                                                  DAOProxy proxy, DirtyTracker tracker, LazyColumns lazyColumns,
+                                                  boolean partial)
+    {
+        var columnIndexes = new HashMap<String, Integer>();
+        for (int i = 0; i < columns.size(); i++) {
+            columnIndexes.put(columns.get(i).getAnnotation(Column.class).value(), i + 1);
+        }
+
+        var size = builder.parameters.size();
+        var filters = new MethodHandle[size];
+
+        for (int i = 0; i < size; i++) {
+            var parameter = builder.parameters.get(i);
+            var index = columnIndexes.get(parameter.name);
+            var lazyField = lazyColumns.fields.get(parameter.name);
+            if (index != null) {
+                filters[i] = getReaderHandle(parameter.type, proxy, index);
+            } else if (lazyField != null) {
+                filters[i] = lazyColumns.getHandle(lazyField);
+            } else if (partial) {
+                filters[i] = MethodHandles.dropArguments(MethodHandles.zero(parameter.type), 0, ResultSet.class);
+            } else {
+                throw new IllegalStateException("Constructor parameter " + parameter.name + " is not a column");
+            }
+        }
+
+        var handle = MethodHandles.filterArguments(builder.handle, 0, filters);
+        var factory = MethodHandles.permuteArguments(handle,
+            MethodType.methodType(handle.type().returnType(), ResultSet.class), new int[size])
+            .asType(MethodType.methodType(Object.class, ResultSet.class));
+
+        return new RowMapper<>(factory, tracker);
+    }
+
+    private static MethodHandle getReaderHandle(Class<?> type, DAOProxy proxy, int index) {
+        switch (type.getName()) {
+            case TYPE_INT:
+                return MethodHandles.insertArguments(GET_INT, 1, index);
+            case TYPE_LONG_PRIM:
+                return MethodHandles.insertArguments(GET_LONG, 1, index);
+            case TYPE_BOOL:
+                return MethodHandles.insertArguments(
+                    MethodHandles.insertArguments(READ_BOOL, 2, index), 0, proxy.getColumnReader(type));
+            default:
+                return MethodHandles.insertArguments(READ.bindTo(proxy.getColumnReader(type)), 1, index)
+                    .asType(MethodType.methodType(type, ResultSet.class));
+        }
+    }
+
+    private static <T> RowMapper<T> ofFields(Class<T> clazz, List<Field> columns, DAOProxy proxy,
+                                             DirtyTracker tracker, LazyColumns lazyColumns)
+    {
+        MethodHandle constructor;
+        try {
+            constructor = MethodHandles.privateLookupIn(clazz, MethodHandles.lookup())
+                .findConstructor(clazz, MethodType.methodType(void.class))
+                .asType(MethodType.methodType(Object.class));
+        } catch (ReflectiveOperationException ex) {
+            throw new RuntimeException(ex);
+        }
+
+        var handles = DAO.getColumnHandles(clazz);
+
+        var assigners = new ArrayList<ColumnAssigner>(columns.size() + lazyColumns.fields.size());
+        for (int i = 0; i < columns.size(); i++) {
+            var field = columns.get(i);
+            var handle = handles.get(field.getAnnotation(Column.class).value());
+            assigners.add(newAssigner(handle, proxy.getColumnReader(field.getType()), i + 1));
+        }
+        for (var entry : lazyColumns.fields.entrySet()) {
+            var handle = handles.get(entry.getKey());
+            var field = entry.getValue();
+            assigners.add((rs, record) -> handle.set(record, lazyColumns.newLazy(field, rs)));
+        }
+
+        return new RowMapper<>(constructor, assigners.toArray(new ColumnAssigner[0]), tracker);
+    }
+
+    private static ColumnAssigner newAssigner(VarHandle handle, DAOProxy.ResultSetReader<?> reader, int index) {
+        switch (handle.varType().getName()) {
+            case TYPE_INT:
+                return (rs, record) -> handle.set(record, rs.getInt(index));
+            case TYPE_LONG_PRIM:
+                return (rs, record) -> handle.set(record, rs.getLong(index));
+            case TYPE_BOOL:
+                return (rs, record) -> {
+                    var value = reader.read(rs, index);
+                    handle.set(record, value != null && (boolean) value);
+                };
+            default:
+                return (rs, record) -> handle.set(record, reader.read(rs, index));
+        }
+    }
+
+    // SQL NULL is mapped to false like field assignment does
+    private static boolean readBoolean(DAOProxy.ResultSetReader<?> reader, ResultSet rs, int index)
+        throws SQLException
+    {
+        var value = reader.read(rs, index);
+        return value != null && (boolean) value;
+    }
+
+    private static Object newLazy(LazyFactory factory, Field field, DAOProxy.ResultSetReader<?> reader, int index,
+                                   ResultSet rs) throws SQLException
+    {
+        return factory.newLazy(field, reader.read(rs, index));
+    }
+
+    /**
+     * Creates record from the current row of the result set.
+     *
+     * @param rs result set
+     * @return record
+     * @throws SQLException in case of SQL error
+     */
+    @SuppressWarnings("unchecked")
+    T map(ResultSet rs) throws SQLException {
+        var record = (T) (factory != null ? create(rs) : assign(rs));
+        if (tracker != null) {
+            tracker.snapshot((Record) record);
+        }
+        return record;
+    }
+
+    private Object create(ResultSet rs) throws SQLException {
+        try {
+            return (Object) factory.invokeExact(rs);
+        } catch (SQLException | RuntimeException ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private Object assign(ResultSet rs) throws SQLException {
+        var record = newInstance();
+        for (var assigner : assigners) {
+            assigner.assign(rs, record);
+        }
+        return record;
+    }
+
+    private Object newInstance() {
+        try {
+            return (Object) constructor.invokeExact();
+        } catch (Throwable ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+}
@@ -30,16 +30,13 @@ import org.panteleyev.persistence.annotations.Column;
 import org.panteleyev.persistence.annotations.ForeignKey;
 import org.panteleyev.persistence.annotations.PrimaryKey;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Types;
 import java.util.List;
 import java.util.Map;
-import java.util.function.BiFunction;
+import java.util.stream.Collectors;
 
 class SQLiteProxy implements DAOProxy, DAOTypes {
-    private static final Map<String, BiFunction<ResultSet, String, ?>> RESULT_SET_READERS = Map.ofEntries(
+    private static final Map<String, ResultSetReader<?>> RESULT_SET_READERS = Map.ofEntries(
         Map.entry(TYPE_STRING, OBJECT_READER),
         Map.entry(TYPE_INTEGER, OBJECT_READER),
         Map.entry(TYPE_INT, INT_READER),
@@ -54,11 +51,31 @@ class SQLiteProxy implements DAOProxy, DAOTypes {
         Map.entry(TYPE_UUID, UUID_STRING_READER)
     );
 
+    private static final Map<String, ParameterWriter> PARAMETER_WRITERS = Map.ofEntries(
+        Map.entry(TYPE_STRING, STRING_WRITER),
+        Map.entry(TYPE_INTEGER, INT_WRITER),
+        Map.entry(TYPE_INT, INT_WRITER),
+        Map.entry(TYPE_LONG, LONG_WRITER),
+        Map.entry(TYPE_LONG_PRIM, LONG_WRITER),
+        Map.entry(TYPE_BOOL, BOOL_WRITER),
+        Map.entry(TYPE_BOOLEAN, BOOL_WRITER),
+        Map.entry(TYPE_BIG_DECIMAL, BIG_DECIMAL_WRITER),
+        Map.entry(TYPE_DATE, DATE_WRITER),
+        Map.entry(TYPE_LOCAL_DATE, LOCAL_DATE_WRITER),
+        Map.entry(TYPE_BYTE_ARRAY, BLOB_WRITER),
+        Map.entry(TYPE_BLOB_REF, BUFFERED_BINARY_STREAM_WRITER),
+        Map.entry(TYPE_UUID, UUID_STRING_WRITER)
+    );
+
     @Override
-    public Map<String, BiFunction<ResultSet, String, ?>> getReaderMap() {
+    public Map<String, ResultSetReader<?>> getReaderMap() {
         return RESULT_SET_READERS;
     }
 
+    public Map<String, ParameterWriter> getWriterMap() {
+        return PARAMETER_WRITERS;
+    }
+
     public String getColumnString(Column column, PrimaryKey primaryKey, ForeignKey foreignKey, String typeName,
                                   List<String> constraints) {
         var b = new StringBuilder();
@@ -99,6 +116,7 @@ class SQLiteProxy implements DAOProxy, DAOTypes {
                     .append(")");
                 break;
             case TYPE_BYTE_ARRAY:
+            case TYPE_BLOB_REF:
                 b.append("BLOB");
                 break;
             default:
@@ -122,6 +140,17 @@ class SQLiteProxy implements DAOProxy, DAOTypes {
         return b.toString();
     }
 
+    @Override
+    public String getUpsertClause(String primaryKey, List<String> columns) {
+        if (columns.isEmpty()) {
+            return " ON CONFLICT(" + primaryKey + ") DO NOTHING";
+        }
+
+        return columns.stream()
+            .map(c -> c + "=excluded." + c)
+            .collect(Collectors.joining(",", " ON CONFLICT(" + primaryKey + ") DO UPDATE SET ", ""));
+    }
+
     public void truncate(Connection connection, List<Class<? extends Record>> tables) {
         tables.forEach(table -> deleteAll(connection, table));
 
@@ -131,20 +160,4 @@ class SQLiteProxy implements DAOProxy, DAOTypes {
             throw new RuntimeException(ex);
         }
     }
-
-    public void setFieldData(PreparedStatement st, int index, Object value, String typeName) throws SQLException {
-        switch (typeName) {
-            case TYPE_BYTE_ARRAY:
-                if (value == null) {
-                    st.setNull(index, Types.BLOB);
-                } else {
-                    st.setBytes(index, (byte[]) value);
-                }
-                break;
-
-            default:
-                DAOProxy.super.setFieldData(st, index, value, typeName);
-                break;
-        }
-    }
 }
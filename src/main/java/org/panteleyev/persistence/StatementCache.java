@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of prepared statements keyed by connection and SQL. Statement is removed from the cache while
+ * it is in use, so nested use of the same SQL on the same connection gets a separate statement. Statements are
+ * closed on eviction. Entries of closed connections are discarded when a new connection is added to the cache and
+ * after every {@value #PURGE_INTERVAL} releases, so statements of connections closed by a pool do not stay in
+ * memory.
+ */
+final class StatementCache {
+    /**
+     * Statement obtained from the cache. Closing it returns the statement to the cache or closes the statement if
+     * caching is disabled.
+     */
+    final class Entry implements AutoCloseable {
+        private final Connection connection;
+        private final String key;
+        private final PreparedStatement statement;
+
+        private Entry(Connection connection, String key, PreparedStatement statement) {
+            this.connection = connection;
+            this.key = key;
+            this.statement = statement;
+        }
+
+        PreparedStatement getStatement() {
+            return statement;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            release(this);
+        }
+    }
+
+    private static final String GENERATED_KEYS_PREFIX = "/* keys */ ";
+
+    // Number of released statements between scans for closed connections
+    static final int PURGE_INTERVAL = 256;
+
+    private final int maxSize;
+    private final Map<Connection, LinkedHashMap<String, PreparedStatement>> statements = new HashMap<>();
+    private int releases;
+    private boolean closed;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates statement cache.
+     *
+     * @param maxSize maximum number of cached statements per connection, 0 disables caching
+     */
+    StatementCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    Entry prepare(Connection conn, String sql) throws SQLException {
+        return prepare(conn, sql, Statement.NO_GENERATED_KEYS);
+    }
+
+    /**
+     * Returns prepared statement for the connection and SQL. Statements returning generated keys are cached
+     * separately from plain statements.
+     *
+     * @param conn              connection
+     * @param sql               SQL
+     * @param autoGeneratedKeys either {@link Statement#RETURN_GENERATED_KEYS} or
+     *                          {@link Statement#NO_GENERATED_KEYS}
+     * @return statement entry
+     * @throws SQLException in case of SQL error
+     */
+    Entry prepare(Connection conn, String sql, int autoGeneratedKeys) throws SQLException {
+        var key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? GENERATED_KEYS_PREFIX + sql : sql;
+        if (maxSize == 0) {
+            return new Entry(conn, key, newStatement(conn, sql, autoGeneratedKeys));
+        }
+
+        PreparedStatement st = null;
+        synchronized (this) {
+            var cached = statements.get(conn);
+            if (cached != null) {
+                st = cached.remove(key);
+            }
+        }
+
+        if (st != null && !st.isClosed()) {
+            hits.increment();
+        } else {
+            misses.increment();
+            st = newStatement(conn, sql, autoGeneratedKeys);
+        }
+        return new Entry(conn, key, st);
+    }
+
+    private static PreparedStatement newStatement(Connection conn, String sql, int autoGeneratedKeys)
+        throws SQLException
+    {
+        return autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ?
+            conn.prepareStatement(sql, autoGeneratedKeys) : conn.prepareStatement(sql);
+    }
+
+    private void release(Entry entry) throws SQLException {
+        var st = entry.statement;
+        if (maxSize == 0) {
+            st.close();
+            return;
+        }
+
+        if (isClosed(entry.connection)) {
+            return;
+        }
+
+        try {
+            st.clearBatch();
+            st.clearParameters();
+        } catch (SQLException ex) {
+            st.close();
+            throw ex;
+        }
+
+        var toClose = new ArrayList<PreparedStatement>();
+        synchronized (this) {
+            if (closed) {
+                // Statement was checked out before the cache was closed
+                toClose.add(st);
+            } else {
+                cache(entry, toClose);
+            }
+        }
+
+        closeAll(toClose);
+    }
+
+    /**
+     * Puts released statement into the cache. Must be called while holding the lock.
+     *
+     * @param entry   released statement
+     * @param toClose statements to be closed outside of the lock
+     */
+    private void cache(Entry entry, List<PreparedStatement> toClose) {
+        var cached = statements.get(entry.connection);
+        if (cached == null || ++releases % PURGE_INTERVAL == 0) {
+            removeClosedConnections();
+        }
+        if (cached == null) {
+            cached = new LinkedHashMap<>(16, 0.75f, true);
+            statements.put(entry.connection, cached);
+        }
+
+        var previous = cached.put(entry.key, entry.statement);
+        if (previous != null && previous != entry.statement) {
+            toClose.add(previous);
+        }
+
+        if (cached.size() > maxSize) {
+            var eldest = cached.entrySet().iterator();
+            toClose.add(eldest.next().getValue());
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Removes statements of closed connections. Such statements are already closed by the driver.
+     */
+    private void removeClosedConnections() {
+        statements.keySet().removeIf(StatementCache::isClosed);
+    }
+
+    private static boolean isClosed(Connection conn) {
+        try {
+            return conn.isClosed();
+        } catch (SQLException ex) {
+            return true;
+        }
+    }
+
+    /**
+     * Closes and removes all statements cached for the connection.
+     *
+     * @param conn connection
+     */
+    void release(Connection conn) {
+        LinkedHashMap<String, PreparedStatement> cached;
+        synchronized (this) {
+            cached = statements.remove(conn);
+        }
+        if (cached != null && !isClosed(conn)) {
+            closeAll(cached.values());
+        }
+    }
+
+    /**
+     * Closes all cached statements. Statements released afterwards are closed instead of caching.
+     */
+    void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        clear();
+    }
+
+    /**
+     * Closes and removes all cached statements.
+     */
+    void clear() {
+        var toClose = new ArrayList<PreparedStatement>();
+        synchronized (this) {
+            statements.forEach((conn, cached) -> {
+                if (!isClosed(conn)) {
+                    toClose.addAll(cached.values());
+                }
+            });
+            statements.clear();
+        }
+        closeAll(toClose);
+    }
+
+    synchronized int size() {
+        return statements.values().stream().mapToInt(Map::size).sum();
+    }
+
+    CacheStats getStats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    private static void closeAll(Iterable<PreparedStatement> toClose) {
+        RuntimeException exception = null;
+        for (var st : toClose) {
+            try {
+                st.close();
+            } catch (SQLException ex) {
+                if (exception == null) {
+                    exception = new RuntimeException(ex);
+                } else {
+                    exception.addSuppressed(ex);
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+}
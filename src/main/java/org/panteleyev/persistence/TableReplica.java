@@ -0,0 +1,336 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import org.panteleyev.persistence.annotations.Column;
+import org.panteleyev.persistence.annotations.Index;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Fully loaded in-memory copy of a table. Replica is created by {@link DAO#replicate(Class)} and is kept in sync
+ * by write operations of the same DAO instance.</p>
+ * <p>Hash indexes are built for columns annotated by {@link Index} or {@link Column#unique()}. Lookups compare
+ * values with {@link Object#equals(Object)}, <code>null</code> values are not indexed.</p>
+ * <p>Reads are lock-free and never block on writes. Writes replace only changed records and index buckets containing
+ * them, records of a multi-record write become visible one by one. Index lists returned by lookups are never modified.
+ * Records are shared between callers and must not be modified.</p>
+ * <p>Writes made with auto-commit enabled are applied to the replica immediately. Writes made inside a transaction
+ * discard the replica, it is reloaded from committed data on next access. If replica is accessed before the
+ * transaction is committed, changes of the transaction are not visible until {@link #refresh()} is called. Changes
+ * made outside of the DAO are not visible until {@link #refresh()} is called either.</p>
+ *
+ * @param <K> type of the primary key
+ * @param <T> type of the record
+ */
+public final class TableReplica<K, T extends Record<K>> {
+    private static final class Snapshot<K, T> {
+        private final Map<K, T> rows;
+        private final Map<String, Map<Object, List<T>>> indexes;
+        // Ticket of the read that produced this snapshot
+        private final long ticket;
+        // Tickets of the latest reads applied to the records, guarded by the replica monitor
+        private final Map<K, Long> tickets = new HashMap<>();
+
+        Snapshot(Map<K, T> rows, Map<String, Map<Object, List<T>>> indexes, long ticket) {
+            this.rows = rows;
+            this.indexes = indexes;
+            this.ticket = ticket;
+        }
+    }
+
+    private final DAO dao;
+    private final Class<T> clazz;
+    private final Map<String, VarHandle> indexedColumns = new LinkedHashMap<>();
+    private final Set<String> uniqueColumns;
+
+    private volatile Snapshot<K, T> snapshot;
+    // Reads are numbered in the order they start, guarded by the replica monitor
+    private long tickets;
+
+    TableReplica(DAO dao, Class<T> clazz) {
+        this.dao = dao;
+        this.clazz = clazz;
+
+        var handles = DAO.getColumnHandles(clazz);
+        var unique = new HashSet<String>();
+        for (var field : DAO.getColumnFields(clazz)) {
+            var column = field.getAnnotation(Column.class);
+            var index = field.getAnnotation(Index.class);
+            if (index == null && !column.unique()) {
+                continue;
+            }
+
+            indexedColumns.put(column.value(), handles.get(column.value()));
+            if (column.unique() || index.unique()) {
+                unique.add(column.value());
+            }
+        }
+        uniqueColumns = Set.copyOf(unique);
+    }
+
+    /**
+     * Returns record type of this replica.
+     *
+     * @return record class
+     */
+    public Class<T> getRecordClass() {
+        return clazz;
+    }
+
+    /**
+     * Returns names of indexed columns.
+     *
+     * @return indexed columns
+     */
+    public Set<String> getIndexedColumns() {
+        return Collections.unmodifiableSet(indexedColumns.keySet());
+    }
+
+    /**
+     * Returns number of records.
+     *
+     * @return number of records
+     */
+    public int size() {
+        return getSnapshot().rows.size();
+    }
+
+    /**
+     * Returns record by its primary key.
+     *
+     * @param id primary key
+     * @return record
+     */
+    public Optional<T> get(K id) {
+        return Optional.ofNullable(getSnapshot().rows.get(id));
+    }
+
+    /**
+     * Returns all records. Collection is a live view, it reflects writes made while it is iterated.
+     *
+     * @return unmodifiable collection of records
+     */
+    public Collection<T> getAll() {
+        return Collections.unmodifiableCollection(getSnapshot().rows.values());
+    }
+
+    /**
+     * Returns records having specified value of the indexed column.
+     *
+     * @param column column name
+     * @param value  column value
+     * @return unmodifiable list of records
+     * @throws IllegalArgumentException if column is not indexed
+     */
+    public List<T> findBy(String column, Object value) {
+        var index = getSnapshot().indexes.get(column);
+        if (index == null) {
+            throw new IllegalArgumentException("Column " + column + " is not indexed");
+        }
+        return value == null ? List.of() : index.getOrDefault(indexKey(value), List.of());
+    }
+
+    /**
+     * Returns record having specified value of the unique column.
+     *
+     * @param column column name
+     * @param value  column value
+     * @return record
+     * @throws IllegalArgumentException if column is not indexed or index is not unique
+     */
+    public Optional<T> findUnique(String column, Object value) {
+        if (!uniqueColumns.contains(column)) {
+            throw new IllegalArgumentException("Column " + column + " is not unique");
+        }
+        var records = findBy(column, value);
+        return records.isEmpty() ? Optional.empty() : Optional.of(records.get(0));
+    }
+
+    /**
+     * Reloads all records from the database.
+     */
+    public void refresh() {
+        try (var conn = dao.getDataSource().getConnection()) {
+            load(conn);
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Reloads all records using the supplied connection.
+     *
+     * @param conn connection
+     */
+    synchronized void load(Connection conn) {
+        var ticket = ++tickets;
+        var rows = new ConcurrentHashMap<K, T>();
+        for (var record : dao.getAll(conn, clazz)) {
+            rows.put(record.getPrimaryKey(), record);
+        }
+        snapshot = buildSnapshot(rows, ticket);
+    }
+
+    /**
+     * Re-reads records with specified primary keys. If this fails replica is reloaded on next access.
+     * Records are read outside of the replica monitor. A read is applied to a record unless the record was updated
+     * by a read that started later, or the replica was reloaded after the read started.
+     *
+     * @param conn connection used for the write
+     * @param ids  primary keys of written records
+     */
+    void synchronize(Connection conn, Collection<K> ids) {
+        long ticket;
+        synchronized (this) {
+            if (snapshot == null || ids.isEmpty()) {
+                return;
+            }
+            ticket = ++tickets;
+        }
+
+        Map<K, T> changed;
+        try {
+            changed = dao.getAll(conn, ids, clazz);
+        } catch (RuntimeException ex) {
+            invalidate();
+            return;
+        }
+
+        synchronized (this) {
+            var current = snapshot;
+            if (current == null || current.ticket > ticket) {
+                return;
+            }
+            for (var id : ids) {
+                var applied = current.tickets.get(id);
+                if (applied == null || applied < ticket) {
+                    current.tickets.put(id, ticket);
+                    replace(current, id, changed.get(id));
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all records.
+     */
+    synchronized void clear() {
+        snapshot = buildSnapshot(new ConcurrentHashMap<>(), ++tickets);
+    }
+
+    /**
+     * Discards all records, replica is reloaded on next access.
+     */
+    synchronized void invalidate() {
+        snapshot = null;
+    }
+
+    private Snapshot<K, T> getSnapshot() {
+        var current = snapshot;
+        if (current != null) {
+            return current;
+        }
+
+        synchronized (this) {
+            if (snapshot == null) {
+                refresh();
+            }
+            return snapshot;
+        }
+    }
+
+    private Snapshot<K, T> buildSnapshot(Map<K, T> rows, long ticket) {
+        var indexes = new HashMap<String, Map<Object, List<T>>>();
+        for (var entry : indexedColumns.entrySet()) {
+            var index = new HashMap<Object, List<T>>();
+            for (var record : rows.values()) {
+                var value = entry.getValue().get(record);
+                if (value != null) {
+                    index.computeIfAbsent(indexKey(value), k -> new ArrayList<>(1)).add(record);
+                }
+            }
+            index.replaceAll((k, list) -> List.copyOf(list));
+            indexes.put(entry.getKey(), new ConcurrentHashMap<>(index));
+        }
+        return new Snapshot<>(rows, indexes, ticket);
+    }
+
+    /**
+     * Replaces single record. Only index buckets containing old or new record are copied.
+     */
+    private void replace(Snapshot<K, T> current, K id, T record) {
+        var previous = record == null ? current.rows.remove(id) : current.rows.put(id, record);
+        for (var entry : indexedColumns.entrySet()) {
+            var index = current.indexes.get(entry.getKey());
+            if (previous != null) {
+                var value = entry.getValue().get(previous);
+                if (value != null) {
+                    index.computeIfPresent(indexKey(value), (k, list) -> {
+                        var copy = new ArrayList<>(list);
+                        copy.removeIf(r -> r == previous);
+                        return copy.isEmpty() ? null : List.copyOf(copy);
+                    });
+                }
+            }
+            if (record != null) {
+                var value = entry.getValue().get(record);
+                if (value != null) {
+                    index.merge(indexKey(value), List.of(record), (list, added) -> {
+                        var copy = new ArrayList<>(list);
+                        copy.addAll(added);
+                        return List.copyOf(copy);
+                    });
+                }
+            }
+        }
+    }
+
+    private static Object indexKey(Object value) {
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).stripTrailingZeros();
+        } else if (value instanceof byte[]) {
+            return ByteBuffer.wrap((byte[]) value);
+        } else {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Generator of time-ordered version 7 UUID values (RFC 9562). The most significant 48 bits hold Unix time in
+ * milliseconds, so new keys are appended to the end of the primary key index instead of being scattered across
+ * random pages.</p>
+ * <p>12 bits following the version are used as a counter, values generated by this class are strictly increasing
+ * within the process even if several values are generated in the same millisecond. Remaining 62 bits are random.
+ * Values are unique but not unpredictable, they must not be used as security tokens.</p>
+ * <p>Version 7 UUID keeps time order in its natural byte order, so it should be stored with
+ * {@link org.panteleyev.persistence.annotations.Column#storeUuidAsBinary()} without
+ * {@link org.panteleyev.persistence.annotations.Column#swapUuidTimeParts()}.</p>
+ */
+public final class TimeOrderedUuid {
+    private static final int COUNTER_BITS = 12;
+
+    // Unix time in milliseconds shifted left by COUNTER_BITS plus counter
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private TimeOrderedUuid() {
+    }
+
+    /**
+     * Generates new time-ordered UUID.
+     *
+     * @return UUID version 7
+     */
+    public static UUID randomUuid() {
+        return newUuid(System.currentTimeMillis());
+    }
+
+    /**
+     * Returns Unix time in milliseconds stored in the version 7 UUID.
+     *
+     * @param uuid UUID version 7
+     * @return Unix time in milliseconds
+     * @throws IllegalArgumentException if UUID version is not 7
+     */
+    public static long getTimestamp(UUID uuid) {
+        if (uuid.version() != 7) {
+            throw new IllegalArgumentException("UUID version is not 7");
+        }
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+
+    static UUID newUuid(long millis) {
+        var candidate = millis << COUNTER_BITS;
+        var value = LAST.accumulateAndGet(candidate, (last, now) -> Math.max(last + 1, now));
+
+        var msb = (value >>> COUNTER_BITS) << 16
+            | 0x7000L
+            | (value & ((1L << COUNTER_BITS) - 1));
+        var lsb = ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+}
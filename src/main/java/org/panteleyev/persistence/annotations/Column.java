@@ -99,9 +99,25 @@ public @interface Column {
      */
     boolean storeUuidAsBinary() default false;
 
+    /**
+     * Defines if time-low and time-high parts of the binary UUID are swapped, i.e. value is converted by
+     * <code>UUID_TO_BIN(?, 1)</code> and <code>BIN_TO_UUID(column, 1)</code>. This makes binary values of time-based
+     * version 1 UUID ordered by time. Applicable together with {@link #storeUuidAsBinary()}. For MySQL only.
+     * @return if swap time parts of binary UUID
+     */
+    boolean swapUuidTimeParts() default false;
+
     /**
      * Defines if column should have unique constraint.
      * @return if column is unique
      */
     boolean unique() default false;
+
+    /**
+     * Defines if column is loaded on first access. Lazy column is not included into SELECT statements, field must
+     * be of type {@link org.panteleyev.persistence.Lazy} parameterized by the column type. Primary key cannot be
+     * lazy.
+     * @return if column is lazy
+     */
+    boolean lazy() default false;
 }
@@ -44,4 +44,14 @@ public @interface PrimaryKey {
      * @return if primary key is auto-incremented
      */
     boolean isAutoIncrement() default true;
+
+    /**
+     * Defines if auto-incremented value is generated by the database on insert. Column is created as
+     * <code>AUTO_INCREMENT</code> for MySQL, for SQLite integer primary key is an alias of <code>rowid</code>.
+     * Generated value is written back into the record, so field must not be final. Attribute is ignored if
+     * primary key is not auto-incremented.
+     *
+     * @return if primary key is generated by the database
+     */
+    boolean isGenerated() default false;
 }
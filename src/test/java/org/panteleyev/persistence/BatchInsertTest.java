@@ -41,6 +41,8 @@ import java.util.UUID;
 import static org.panteleyev.persistence.base.Base.MYSQL_GROUP;
 import static org.panteleyev.persistence.base.Base.SQLITE_GROUP;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertThrows;
 import static org.testng.Assert.assertTrue;
 
 @Test(groups = {SQLITE_GROUP, MYSQL_GROUP})
@@ -109,6 +111,91 @@ public class BatchInsertTest extends Base {
         assertRecords(records, retrieved, map);
     }
 
+    @DataProvider
+    public Object[][] testBulkInsertDataProvider() {
+        return new Object[][]{
+            {100, 7, 3, 15, 5},
+            {100, 10, 5, 10, 2},
+            {100, 10, 20, 10, 1}
+        };
+    }
+
+    @Test(dataProvider = "testBulkInsertDataProvider")
+    public void testBulkInsert(int count, int batchSize, int commitInterval, int batches, int commits)
+        throws Exception
+    {
+        var clazz = RecordWithPrimitives.class;
+
+        getDao().createTables(Collections.singletonList(clazz));
+        getDao().preload(Collections.singletonList(clazz));
+
+        List<RecordWithPrimitives> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(RecordWithPrimitives.newRecord(getDao().generatePrimaryKey(clazz), RANDOM));
+        }
+
+        try (var conn = getDao().getConnection()) {
+            var stats = getDao().bulkInsert(conn, batchSize, commitInterval, records);
+
+            assertTrue(conn.getAutoCommit());
+            assertEquals(stats.getRows(), count);
+            assertEquals(stats.getBatches(), batches);
+            assertEquals(stats.getCommits(), commits);
+            assertTrue(stats.getRowsPerSecond() > 0);
+        }
+
+        var retrieved = getDao().getAll(clazz);
+        var map = new HashMap<Integer, RecordWithPrimitives>();
+        getDao().getAll(clazz, map);
+        assertEquals(retrieved.size(), records.size());
+        assertRecords(records, retrieved, map);
+    }
+
+    public void testBulkInsertRollback() throws Exception {
+        var clazz = RecordWithPrimitives.class;
+
+        getDao().createTables(Collections.singletonList(clazz));
+        getDao().preload(Collections.singletonList(clazz));
+
+        List<RecordWithPrimitives> records = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            records.add(RecordWithPrimitives.newRecord(getDao().generatePrimaryKey(clazz), RANDOM));
+        }
+        // Duplicate primary key in the third transaction
+        records.add(22, records.get(0));
+
+        try (var conn = getDao().getConnection()) {
+            assertThrows(RuntimeException.class, () -> getDao().bulkInsert(conn, 5, 2, records));
+            assertTrue(conn.getAutoCommit());
+        }
+
+        // First two transactions are committed
+        assertEquals(getDao().getAll(clazz).size(), 20);
+    }
+
+    public void testBulkInsertExternalTransaction() throws Exception {
+        var clazz = RecordWithPrimitives.class;
+
+        getDao().createTables(Collections.singletonList(clazz));
+        getDao().preload(Collections.singletonList(clazz));
+
+        List<RecordWithPrimitives> records = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            records.add(RecordWithPrimitives.newRecord(getDao().generatePrimaryKey(clazz), RANDOM));
+        }
+
+        try (var conn = getDao().getConnection()) {
+            conn.setAutoCommit(false);
+            var stats = getDao().bulkInsert(conn, 3, 1, records);
+            assertEquals(stats.getCommits(), 0);
+            assertEquals(stats.getBatches(), 4);
+            assertFalse(conn.getAutoCommit());
+            conn.rollback();
+        }
+
+        assertTrue(getDao().getAll(clazz).isEmpty());
+    }
+
     private void assertRecords(Collection<? extends Record> original,
                                Collection<? extends Record> retrieved,
                                Map<?, ? extends Record> map)
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import org.panteleyev.persistence.base.Base;
+import org.panteleyev.persistence.model.RecordWithPrimitives;
+import org.panteleyev.persistence.model.StringPrimaryKeyRecord;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import static org.panteleyev.persistence.base.Base.MYSQL_GROUP;
+import static org.panteleyev.persistence.base.Base.SQLITE_GROUP;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {SQLITE_GROUP, MYSQL_GROUP})
+public class BatchUpdateTest extends Base {
+    @DataProvider
+    public Object[][] testBatchDataProvider() {
+        return new Object[][]{
+            {100, 7},
+            {100, 10}
+        };
+    }
+
+    private List<RecordWithPrimitives> givenRecords(int count) {
+        var clazz = RecordWithPrimitives.class;
+
+        getDao().createTables(Collections.singletonList(clazz));
+        getDao().preload(Collections.singletonList(clazz));
+
+        List<RecordWithPrimitives> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(RecordWithPrimitives.newRecord(getDao().generatePrimaryKey(clazz), RANDOM));
+        }
+        getDao().insert(count, records);
+        return records;
+    }
+
+    @Test(dataProvider = "testBatchDataProvider")
+    public void testBatchUpdate(int count, int batchSize) {
+        var records = givenRecords(count);
+
+        List<RecordWithPrimitives> updated = new ArrayList<>(count);
+        for (var r : records) {
+            updated.add(RecordWithPrimitives.newRecord(r.getPrimaryKey(), RANDOM));
+        }
+        getDao().update(batchSize, updated);
+
+        var retrieved = getDao().getAll(RecordWithPrimitives.class);
+        assertEquals(retrieved.size(), count);
+        for (var r : updated) {
+            assertTrue(retrieved.contains(r));
+        }
+    }
+
+    @Test(dataProvider = "testBatchDataProvider")
+    public void testBatchDelete(int count, int batchSize) {
+        var records = givenRecords(count);
+
+        var toDelete = records.subList(0, count / 2);
+        getDao().delete(batchSize, toDelete);
+
+        var retrieved = getDao().getAll(RecordWithPrimitives.class);
+        assertEquals(retrieved.size(), count - toDelete.size());
+        for (var r : records.subList(count / 2, count)) {
+            assertTrue(retrieved.contains(r));
+        }
+    }
+
+    @Test(dataProvider = "testBatchDataProvider")
+    public void testBatchDeleteByIds(int count, int batchSize) {
+        var clazz = StringPrimaryKeyRecord.class;
+        getDao().createTables(Collections.singletonList(clazz));
+
+        List<StringPrimaryKeyRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(new StringPrimaryKeyRecord(UUID.randomUUID().toString(), UUID.randomUUID().toString()));
+        }
+        getDao().insert(batchSize, records);
+
+        var ids = new ArrayList<String>();
+        for (int i = 0; i < count; i += 2) {
+            ids.add(records.get(i).getPrimaryKey());
+        }
+        getDao().delete(batchSize, ids, clazz);
+
+        var retrieved = getDao().getAll(clazz);
+        assertEquals(retrieved.size(), count - ids.size());
+        for (var r : retrieved) {
+            assertFalse(ids.contains(r.getPrimaryKey()));
+        }
+    }
+}
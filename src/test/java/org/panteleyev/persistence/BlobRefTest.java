@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import org.panteleyev.persistence.base.Base;
+import org.panteleyev.persistence.model.BlobRecord;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.panteleyev.persistence.base.Base.MYSQL_GROUP;
+import static org.panteleyev.persistence.base.Base.SQLITE_GROUP;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {SQLITE_GROUP, MYSQL_GROUP})
+public class BlobRefTest extends Base {
+    private static final int SIZE = 100_000;
+
+    private final byte[] bytes = new byte[SIZE];
+
+    @BeforeMethod
+    public void createTable() {
+        getDao().createTables(List.of(BlobRecord.class));
+        new Random().nextBytes(bytes);
+    }
+
+    private static byte[] read(BlobRef blob) throws IOException {
+        var out = new ByteArrayOutputStream();
+        blob.transferTo(out);
+        return out.toByteArray();
+    }
+
+    public void testByteArray() throws IOException {
+        getDao().insert(new BlobRecord(1, "bytes", BlobRef.of(bytes)));
+
+        var record = getDao().get(1, BlobRecord.class).orElseThrow();
+        assertTrue(record.getData().isStored());
+        assertEquals(record.getData().getLength(), -1L);
+        assertEquals(read(record.getData()), bytes);
+
+        try (var in = record.getData().openStream()) {
+            assertEquals(in.readNBytes(10), Arrays.copyOf(bytes, 10));
+        }
+    }
+
+    public void testStreamLifecycle() throws IOException {
+        var opened = new AtomicInteger();
+        var closed = new AtomicInteger();
+        var blob = BlobRef.of(() -> {
+            opened.incrementAndGet();
+            return new ByteArrayInputStream(bytes) {
+                @Override
+                public void close() throws IOException {
+                    closed.incrementAndGet();
+                    super.close();
+                }
+            };
+        }, bytes.length);
+
+        // Stream is opened only when the value is written and closed afterwards
+        assertEquals(opened.get(), 0);
+        getDao().insert(new BlobRecord(1, "stream", blob));
+        assertEquals(opened.get(), 1);
+        assertEquals(closed.get(), 1);
+
+        // Stored value is not read until the stream is requested
+        var record = getDao().get(1, BlobRecord.class).orElseThrow();
+        getDao().update(1, List.of(new BlobRecord(1, "renamed", record.getData())));
+        try (var in = record.getData().openStream()) {
+            assertEquals(in.readAllBytes(), bytes);
+        }
+    }
+
+    public void testFile() throws IOException {
+        var file = Files.createTempFile("blob", ".bin");
+        try {
+            Files.write(file, bytes);
+            getDao().insert(10, List.of(
+                new BlobRecord(1, "file", BlobRef.of(file)),
+                new BlobRecord(2, "null", null)
+            ));
+
+            var copy = Files.createTempFile("blob", ".bin");
+            try (var out = Files.newOutputStream(copy)) {
+                getDao().get(1, BlobRecord.class).orElseThrow().getData().transferTo(out);
+            }
+            assertEquals(Files.readAllBytes(copy), bytes);
+            Files.delete(copy);
+
+            assertNull(getDao().get(2, BlobRecord.class).orElseThrow().getData().openStream());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    public void testUpdate() throws IOException {
+        getDao().insert(new BlobRecord(1, "name", BlobRef.of(bytes)));
+        var record = getDao().get(1, BlobRecord.class).orElseThrow();
+
+        // Stored value is not rewritten
+        getDao().update(new BlobRecord(1, "updated", record.getData()));
+        var updated = getDao().get(1, BlobRecord.class).orElseThrow();
+        assertEquals(updated.getName(), "updated");
+        assertEquals(read(updated.getData()), bytes);
+
+        var newBytes = new byte[] {1, 2, 3};
+        getDao().update(new BlobRecord(1, "updated",
+            BlobRef.of(() -> new ByteArrayInputStream(newBytes), newBytes.length)));
+        assertEquals(read(getDao().get(1, BlobRecord.class).orElseThrow().getData()), newBytes);
+
+        // Copy stored value into another row
+        getDao().insert(new BlobRecord(2, "copy", updated.getData()));
+        assertEquals(read(getDao().get(2, BlobRecord.class).orElseThrow().getData()), newBytes);
+    }
+
+    public void testBatchUpdate() throws IOException {
+        var other = new byte[] {4, 5, 6};
+        getDao().insert(10, List.of(
+            new BlobRecord(1, "first", BlobRef.of(bytes)),
+            new BlobRecord(2, "second", BlobRef.of(bytes)),
+            new BlobRecord(3, "other", BlobRef.of(other))
+        ));
+
+        // Handles of the deleted row would write nothing if they were opened
+        var stored = getDao().get(3, BlobRecord.class).orElseThrow().getData();
+        getDao().delete(3, BlobRecord.class);
+
+        getDao().update(10, List.of(
+            new BlobRecord(1, "first updated", stored),
+            new BlobRecord(2, "second updated", stored)
+        ));
+        for (var record : getDao().getAll(BlobRecord.class)) {
+            assertTrue(record.getName().endsWith(" updated"));
+            assertEquals(read(record.getData()), bytes);
+        }
+
+        assertThrows(IllegalArgumentException.class,
+            () -> getDao().insert(10, List.of(new BlobRecord(4, "copy", stored))));
+        assertThrows(IllegalArgumentException.class,
+            () -> getDao().upsert(10, List.of(new BlobRecord(1, "copy", stored))));
+        assertEquals(getDao().getAll(BlobRecord.class).size(), 2);
+    }
+
+    public void testDeletedRow() throws IOException {
+        getDao().insert(new BlobRecord(1, "name", BlobRef.of(bytes)));
+        var record = getDao().get(1, BlobRecord.class).orElseThrow();
+        getDao().delete(record);
+        assertNull(record.getData().openStream());
+        assertEquals(record.getData().transferTo(new ByteArrayOutputStream()), 0L);
+    }
+
+    public void testNotSelectable() {
+        assertThrows(IllegalArgumentException.class,
+            () -> getDao().select(BlobRecord.class).where("data", Query.Operator.IS_NULL));
+        assertThrows(IllegalArgumentException.class, () -> getDao().project(BlobRecord.class, "data"));
+    }
+}
@@ -33,27 +33,41 @@ import org.panteleyev.persistence.answers.ResultSetLongAnswer;
 import org.panteleyev.persistence.answers.ResultSetObjectAnswer;
 import org.panteleyev.persistence.model.EnumType;
 import org.panteleyev.persistence.model.ImmutableRecord;
+import org.panteleyev.persistence.model.ImmutableRecordWithPrimitives;
+import org.panteleyev.persistence.model.LazyRecord;
 import org.panteleyev.persistence.model.RecordWithAllTypes;
 import org.panteleyev.persistence.model.RecordWithJson;
 import org.panteleyev.persistence.model.RecordWithOptionals;
+import org.panteleyev.persistence.model.RecordWithPrimitives;
 import org.panteleyev.persistence.model.RecordWithUuid;
 import org.panteleyev.persistence.model.UuidBinaryPrimaryKeyRecord;
 import org.panteleyev.persistence.model.UuidPrimaryKeyRecord;
+import org.panteleyev.persistence.model.UuidSwappedPrimaryKeyRecord;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 import java.math.BigDecimal;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.Types;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Date;
 import java.util.List;
 import java.util.Random;
-import static org.mockito.ArgumentMatchers.anyString;
+import java.util.UUID;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.panteleyev.persistence.base.Base.GENERIC_GROUP;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 
 @Test(groups = GENERIC_GROUP)
 public class DaoTest {
@@ -79,28 +93,74 @@ public class DaoTest {
 
         for (int id = 1; id <= NUMBER_OF_RECORDS; id++) {
             var record = ImmutableRecord.newRecord(id, RANDOM);
+            records[id - 1] = record;
+            resultSets[id - 1] = mockResultSet(record);
+        }
+
+        var loadedRecords = new ImmutableRecord[NUMBER_OF_RECORDS];
+
+        var dao = new DAO(new MySQLProxy());
 
+        for (int i = 0; i < NUMBER_OF_RECORDS; i++) {
+            loadedRecords[i] = dao.fromSQL(resultSets[i], ImmutableRecord.class);
+        }
+
+        assertEquals(loadedRecords, records);
+    }
+
+    @Test
+    public void testFromSQLImmutableWithPrimitives() throws Exception {
+        var records = new ImmutableRecordWithPrimitives[NUMBER_OF_RECORDS];
+        var resultSets = new ResultSet[NUMBER_OF_RECORDS];
+
+        for (int id = 1; id <= NUMBER_OF_RECORDS; id++) {
+            var record = ImmutableRecordWithPrimitives.newRecord(id, RANDOM);
             records[id - 1] = record;
+            resultSets[id - 1] = mockResultSet(record);
+        }
 
-            var rs = mock(ResultSet.class);
-            when(rs.getObject(anyString())).then(new ResultSetObjectAnswer(record));
-            when(rs.getLong(anyString())).then(new ResultSetLongAnswer(record));
-            when(rs.getInt(anyString())).then(new ResultSetIntAnswer(record));
-            when(rs.getBoolean(anyString())).then(new ResultSetBooleanAnswer(record));
-            when(rs.getBigDecimal(anyString())).then(new ResultSetBigDecimalAnswer(record));
+        var loadedRecords = new ImmutableRecordWithPrimitives[NUMBER_OF_RECORDS];
 
-            resultSets[id - 1] = rs;
+        var dao = new DAO(new MySQLProxy());
+
+        for (int i = 0; i < NUMBER_OF_RECORDS; i++) {
+            loadedRecords[i] = dao.fromSQL(resultSets[i], ImmutableRecordWithPrimitives.class);
         }
 
-        var loadedRecords = new ImmutableRecord[NUMBER_OF_RECORDS];
+        assertEquals(loadedRecords, records);
+    }
+
+    @Test
+    public void testFromSQLFieldAssignment() throws Exception {
+        var records = new RecordWithAllTypes[NUMBER_OF_RECORDS];
+        var resultSets = new ResultSet[NUMBER_OF_RECORDS];
+
+        for (int id = 1; id <= NUMBER_OF_RECORDS; id++) {
+            var record = RecordWithAllTypes.newRecord(id, RANDOM);
+            records[id - 1] = record;
+            resultSets[id - 1] = mockResultSet(record);
+        }
+
+        var loadedRecords = new RecordWithAllTypes[NUMBER_OF_RECORDS];
 
         var dao = new DAO(new MySQLProxy());
 
         for (int i = 0; i < NUMBER_OF_RECORDS; i++) {
-            loadedRecords[i] = dao.fromSQL(resultSets[i], ImmutableRecord.class);
+            loadedRecords[i] = dao.fromSQL(resultSets[i], RecordWithAllTypes.class);
         }
 
         assertEquals(loadedRecords, records);
+        assertSame(dao.getRowMapper(RecordWithAllTypes.class), dao.getRowMapper(RecordWithAllTypes.class));
+    }
+
+    private static ResultSet mockResultSet(Record record) throws Exception {
+        var rs = mock(ResultSet.class);
+        when(rs.getObject(anyInt())).then(new ResultSetObjectAnswer(record));
+        when(rs.getLong(anyInt())).then(new ResultSetLongAnswer(record));
+        when(rs.getInt(anyInt())).then(new ResultSetIntAnswer(record));
+        when(rs.getBoolean(anyInt())).then(new ResultSetBooleanAnswer(record));
+        when(rs.getBigDecimal(anyInt())).then(new ResultSetBigDecimalAnswer(record));
+        return rs;
     }
 
     @Test
@@ -206,7 +266,12 @@ public class DaoTest {
             {new DAO(new MySQLProxy()), RecordWithUuid.class,
                 "SELECT id,uuid,BIN_TO_UUID(uuidBinary) AS uuidBinary FROM table_with_uuid WHERE id=?"},
             {new DAO(new MySQLProxy()), UuidBinaryPrimaryKeyRecord.class,
-                "SELECT BIN_TO_UUID(prim_key) AS prim_key,value FROM uuid_binary_primary_key WHERE BIN_TO_UUID(prim_key)=?"},
+                "SELECT BIN_TO_UUID(prim_key) AS prim_key,value FROM uuid_binary_primary_key WHERE prim_key=UUID_TO_BIN(?)"},
+            {new DAO(new MySQLProxy()), UuidSwappedPrimaryKeyRecord.class,
+                "SELECT BIN_TO_UUID(prim_key, 1) AS prim_key,value FROM uuid_swapped_primary_key " +
+                    "WHERE prim_key=UUID_TO_BIN(?, 1)"},
+            {new DAO(new SQLiteProxy()), UuidSwappedPrimaryKeyRecord.class,
+                "SELECT prim_key,value FROM uuid_swapped_primary_key WHERE prim_key=?"},
             {new DAO(new SQLiteProxy()), UuidPrimaryKeyRecord.class,
                 "SELECT prim_key,value FROM uuid_primary_key WHERE prim_key=?"},
         };
@@ -254,4 +319,195 @@ public class DaoTest {
         assertSame(sql, sql2);
         assertEquals(sql, expected);
     }
-}
\ No newline at end of file
+
+    @DataProvider(name = "testGetSelectPageSqlDataProvider")
+    public Object[][] testGetSelectPageSqlDataProvider() {
+        return new Object[][]{
+            {new DAO(new SQLiteProxy()), ImmutableRecord.class,
+                "SELECT id,a,b,c,d,e,f,g,h FROM immutable_table ORDER BY id LIMIT ?",
+                "SELECT id,a,b,c,d,e,f,g,h FROM immutable_table WHERE id>? ORDER BY id LIMIT ?"},
+            {new DAO(new MySQLProxy()), UuidBinaryPrimaryKeyRecord.class,
+                "SELECT BIN_TO_UUID(prim_key) AS prim_key,value FROM uuid_binary_primary_key ORDER BY prim_key LIMIT ?",
+                "SELECT BIN_TO_UUID(prim_key) AS prim_key,value FROM uuid_binary_primary_key " +
+                    "WHERE prim_key>UUID_TO_BIN(?) ORDER BY prim_key LIMIT ?"},
+        };
+    }
+
+    @Test(dataProvider = "testGetSelectPageSqlDataProvider")
+    public void testGetSelectPageSql(DAO dao, Class<? extends Record> clazz, String first, String next) {
+        assertEquals(dao.getSelectFirstPageSql(clazz), first);
+        assertEquals(dao.getSelectPageSql(clazz), next);
+        assertSame(dao.getSelectPageSql(clazz), dao.getSelectPageSql(clazz));
+    }
+
+    @Test
+    public void testInListSize() {
+        assertEquals(DAO.getInListSize(1), 1);
+        assertEquals(DAO.getInListSize(2), 2);
+        assertEquals(DAO.getInListSize(3), 4);
+        assertEquals(DAO.getInListSize(4), 4);
+        assertEquals(DAO.getInListSize(5), 8);
+        assertEquals(DAO.getInListSize(DAO.MAX_IN_LIST_SIZE), DAO.MAX_IN_LIST_SIZE);
+    }
+
+    @Test
+    public void testGetMultiRowInsertSql() {
+        var dao = new DAO(new MySQLProxy());
+        var clazz = UuidBinaryPrimaryKeyRecord.class;
+
+        assertEquals(dao.getMultiRowInsertSql(clazz, 1),
+            "INSERT INTO uuid_binary_primary_key (prim_key,value) VALUES (UUID_TO_BIN(?),?)");
+        assertEquals(dao.getMultiRowInsertSql(clazz, 3),
+            "INSERT INTO uuid_binary_primary_key (prim_key,value) VALUES "
+                + "(UUID_TO_BIN(?),?),(UUID_TO_BIN(?),?),(UUID_TO_BIN(?),?)");
+        assertSame(dao.getMultiRowInsertSql(clazz, 3), dao.getMultiRowInsertSql(clazz, 3));
+    }
+
+    @Test
+    public void testGetMultiRowCount() {
+        var dao = new DAO(new MySQLProxy());
+        var clazz = UuidBinaryPrimaryKeyRecord.class;
+
+        var records = new ArrayList<UuidBinaryPrimaryKeyRecord>();
+        for (int i = 0; i < 10; i++) {
+            records.add(new UuidBinaryPrimaryKeyRecord(UUID.randomUUID(), "0123456789"));
+        }
+
+        var sql = dao.getMultiRowInsertSql(clazz, 1);
+        // "(UUID_TO_BIN(?),?)," + UUID + string
+        var rowLength = 19 + DAO.estimateValueLength(UUID.randomUUID()) + DAO.estimateValueLength("0123456789");
+        var baseLength = sql.length() - 19;
+
+        assertEquals(dao.getMultiRowCount(records, 0, Long.MAX_VALUE, false), 8);
+        assertEquals(dao.getMultiRowCount(records, 8, Long.MAX_VALUE, false), 2);
+        assertEquals(dao.getMultiRowCount(records, 0, baseLength + 3 * rowLength, false), 2);
+        assertEquals(dao.getMultiRowCount(records, 0, baseLength + 4 * rowLength, false), 4);
+        assertEquals(dao.getMultiRowCount(records, 0, 1, false), 1);
+    }
+
+    @Test
+    public void testEstimateValueLength() {
+        assertEquals(DAO.estimateValueLength(null), 4);
+        assertEquals(DAO.estimateValueLength("abc"), 11);
+        assertEquals(DAO.estimateValueLength(new byte[10]), 30);
+        assertEquals(DAO.estimateValueLength(EnumType.F1), 8);
+        assertEquals(DAO.estimateValueLength(BlobRef.of(new byte[10])), 30);
+        assertEquals(DAO.estimateValueLength(Lazy.of("abc")), 11);
+        assertTrue(DAO.estimateValueLength(new Lazy<>(() -> "abc")) >= Integer.MAX_VALUE);
+        assertTrue(DAO.estimateValueLength(new BlobRef(() -> null, 10, true)) >= Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testGetUpsertSql() {
+        var clazz = UuidBinaryPrimaryKeyRecord.class;
+
+        assertEquals(new DAO(new MySQLProxy()).getMultiRowUpsertSql(clazz, 2),
+            "INSERT INTO uuid_binary_primary_key (prim_key,value) VALUES (UUID_TO_BIN(?),?),(UUID_TO_BIN(?),?)"
+                + " ON DUPLICATE KEY UPDATE value=VALUES(value)");
+        assertEquals(new DAO(new SQLiteProxy()).getMultiRowUpsertSql(clazz, 1),
+            "INSERT INTO uuid_binary_primary_key (prim_key,value) VALUES (?,?)"
+                + " ON CONFLICT(prim_key) DO UPDATE SET value=excluded.value");
+
+        var proxy = new MySQLProxy();
+        proxy.setServerVersion("8.0.36");
+        assertEquals(new DAO(proxy).getMultiRowUpsertSql(clazz, 1),
+            "INSERT INTO uuid_binary_primary_key (prim_key,value) VALUES (UUID_TO_BIN(?),?)"
+                + " AS new_row ON DUPLICATE KEY UPDATE value=new_row.value");
+    }
+
+    @Test
+    public void testMySQLRowAliasSupport() {
+        assertTrue(MySQLProxy.supportsRowAlias("8.0.19"));
+        assertTrue(MySQLProxy.supportsRowAlias("8.4.0-commercial"));
+        assertTrue(MySQLProxy.supportsRowAlias("9.1.0"));
+        assertFalse(MySQLProxy.supportsRowAlias("8.0.18"));
+        assertFalse(MySQLProxy.supportsRowAlias("5.7.44-log"));
+        assertFalse(MySQLProxy.supportsRowAlias("5.5.5-10.11.6-MariaDB"));
+        assertFalse(MySQLProxy.supportsRowAlias("unknown"));
+    }
+
+    @Test
+    public void testRecordBinder() throws Exception {
+        var dao = new DAO(new SQLiteProxy());
+        var binder = dao.getBinder(RecordWithPrimitives.class);
+        assertSame(dao.getBinder(RecordWithPrimitives.class), binder);
+
+        var record = new RecordWithPrimitives(10, 20, true, 30L);
+
+        var insert = mock(PreparedStatement.class);
+        assertEquals(binder.bindInsert(record, insert, 1), 5);
+        var inOrder = inOrder(insert);
+        inOrder.verify(insert).setInt(1, 10);
+        inOrder.verify(insert).setInt(2, 20);
+        inOrder.verify(insert).setBoolean(3, true);
+        inOrder.verify(insert).setLong(4, 30L);
+
+        var update = mock(PreparedStatement.class);
+        assertEquals(binder.bindUpdate(record, update, 1), 5);
+        inOrder = inOrder(update);
+        inOrder.verify(update).setInt(1, 20);
+        inOrder.verify(update).setBoolean(2, true);
+        inOrder.verify(update).setLong(3, 30L);
+        inOrder.verify(update).setInt(4, 10);
+
+        var delete = mock(PreparedStatement.class);
+        binder.bindPrimaryKey(record, delete, 1);
+        binder.bindPrimaryKeyValue(null, delete, 2);
+        verify(delete).setInt(1, 10);
+        verify(delete).setNull(2, Types.INTEGER);
+    }
+
+    @Test
+    public void testGetUpdateChangedSql() {
+        var dao = new DAO(new MySQLProxy());
+
+        var columns = new BitSet();
+        columns.set(1);
+        columns.set(3);
+        assertEquals(dao.getUpdateChangedSql(RecordWithPrimitives.class, columns),
+            "update primitives_table set a=?, c=? WHERE id=?");
+        assertSame(dao.getUpdateChangedSql(RecordWithPrimitives.class, (BitSet) columns.clone()),
+            dao.getUpdateChangedSql(RecordWithPrimitives.class, columns));
+    }
+
+    @Test
+    public void testBinaryUuidPredicates() {
+        var dao = new DAO(new MySQLProxy());
+        var clazz = UuidBinaryPrimaryKeyRecord.class;
+
+        assertEquals(dao.getSelectByIdsSql(clazz, 2),
+            "SELECT BIN_TO_UUID(prim_key) AS prim_key,value FROM uuid_binary_primary_key "
+                + "WHERE prim_key IN (UUID_TO_BIN(?),UUID_TO_BIN(?))");
+        assertEquals(dao.buildUpdateSql(clazz), "update uuid_binary_primary_key set value=? "
+            + "WHERE prim_key=UUID_TO_BIN(?)");
+        assertEquals(dao.buildDeleteSql(clazz), "DELETE FROM uuid_binary_primary_key WHERE prim_key=UUID_TO_BIN(?)");
+    }
+
+    @Test
+    public void testQuerySql() {
+        var dao = new DAO(new MySQLProxy());
+
+        var query = dao.select(UuidBinaryPrimaryKeyRecord.class)
+            .where("prim_key", Query.Operator.IN, List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()))
+            .where("value", Query.Operator.IS_NOT_NULL)
+            .orderByDescending("value")
+            .offset(10);
+
+        var statement = dao.getQueryStatement(query, 5);
+        assertEquals(statement.getSql(),
+            "SELECT BIN_TO_UUID(prim_key) AS prim_key,value FROM uuid_binary_primary_key "
+                + "WHERE prim_key IN (UUID_TO_BIN(?),UUID_TO_BIN(?),UUID_TO_BIN(?),UUID_TO_BIN(?)) "
+                + "AND value IS NOT NULL ORDER BY value DESC LIMIT ? OFFSET ?");
+        assertEquals(statement.getWriters().length, 4);
+    }
+
+    @Test
+    public void testLazyColumnSql() throws Exception {
+        var dao = new DAO(new MySQLProxy());
+
+        assertEquals(dao.buildSelectAllSql(LazyRecord.class), "SELECT id,name FROM lazy_record");
+        assertEquals(dao.getLazySelectSql(LazyRecord.class, LazyRecord.class.getDeclaredField("payload"), 2),
+            "SELECT id,payload FROM lazy_record WHERE id IN (?,?)");
+        assertEquals(DAO.getValueType(LazyRecord.class.getDeclaredField("json")), String.class);
+    }
+}
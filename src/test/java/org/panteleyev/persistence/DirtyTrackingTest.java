@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import org.panteleyev.persistence.base.Base;
+import org.panteleyev.persistence.model.RecordWithPrimitives;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import java.util.Collections;
+import static org.panteleyev.persistence.base.Base.MYSQL_GROUP;
+import static org.panteleyev.persistence.base.Base.SQLITE_GROUP;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {SQLITE_GROUP, MYSQL_GROUP})
+public class DirtyTrackingTest extends Base {
+    @BeforeMethod
+    public void enableDirtyTracking() {
+        getDao().setDirtyTracking(true);
+    }
+
+    @AfterMethod
+    public void disableDirtyTracking() {
+        getDao().setDirtyTracking(false);
+    }
+
+    private RecordWithPrimitives givenRecord() {
+        var clazz = RecordWithPrimitives.class;
+
+        getDao().createTables(Collections.singletonList(clazz));
+        getDao().preload(Collections.singletonList(clazz));
+
+        var record = RecordWithPrimitives.newRecord(getDao().generatePrimaryKey(clazz), RANDOM);
+        getDao().insert(record);
+        return record;
+    }
+
+    public void testUpdateChanged() {
+        var id = givenRecord().getPrimaryKey();
+
+        var tracked = getDao().get(id, RecordWithPrimitives.class).orElseThrow();
+        assertFalse(getDao().updateChanged(tracked));
+
+        // Column b is changed by another writer
+        var other = getDao().get(id, RecordWithPrimitives.class).orElseThrow();
+        other.setB(!other.getB());
+        getDao().update(other);
+
+        // Only column a is written, change of column b is preserved
+        tracked.setA(tracked.getA() + 1);
+        assertTrue(getDao().updateChanged(tracked));
+        assertFalse(getDao().updateChanged(tracked));
+
+        var retrieved = getDao().get(id, RecordWithPrimitives.class).orElseThrow();
+        assertEquals(retrieved.getA(), tracked.getA());
+        assertEquals(retrieved.getB(), other.getB());
+        assertEquals(retrieved.getC(), tracked.getC());
+    }
+
+    public void testUpdateChangedUntracked() {
+        var record = givenRecord();
+
+        // Inserted instance is not tracked, all columns are updated
+        record.setC(record.getC() + 1);
+        assertTrue(getDao().updateChanged(record));
+        assertFalse(getDao().updateChanged(record));
+        assertEquals(getDao().get(record.getPrimaryKey(), RecordWithPrimitives.class).orElseThrow(), record);
+    }
+
+    public void testUpdateChangedPrimaryKey() {
+        var id = givenRecord().getPrimaryKey();
+
+        var tracked = getDao().get(id, RecordWithPrimitives.class).orElseThrow();
+        tracked.setId(id + 1);
+        assertThrows(IllegalStateException.class, () -> getDao().updateChanged(tracked));
+    }
+
+    public void testDirtyTrackingDisabled() {
+        var id = givenRecord().getPrimaryKey();
+        getDao().setDirtyTracking(false);
+
+        var record = getDao().get(id, RecordWithPrimitives.class).orElseThrow();
+        assertThrows(IllegalStateException.class, () -> getDao().updateChanged(record));
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import org.panteleyev.persistence.base.Base;
+import org.panteleyev.persistence.model.CacheableRecord;
+import org.panteleyev.persistence.model.RecordWithPrimitives;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import static org.panteleyev.persistence.base.Base.MYSQL_GROUP;
+import static org.panteleyev.persistence.base.Base.SQLITE_GROUP;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {SQLITE_GROUP, MYSQL_GROUP})
+public class EntityCacheTest extends Base {
+    @BeforeMethod
+    public void createTable() {
+        getDao().createTables(List.of(CacheableRecord.class));
+    }
+
+    private void updateDirectly(int id, String value) throws SQLException {
+        try (var conn = getDao().getDataSource().getConnection();
+             var st = conn.prepareStatement("UPDATE cacheable_record SET value = ? WHERE id = ?"))
+        {
+            st.setString(1, value);
+            st.setInt(2, id);
+            st.executeUpdate();
+        }
+    }
+
+    public void testCachedGet() throws Exception {
+        getDao().insert(new CacheableRecord(1, "a"));
+        var before = getDao().getEntityCacheStats(CacheableRecord.class).orElseThrow();
+
+        var first = getDao().get(1, CacheableRecord.class).orElseThrow();
+        updateDirectly(1, "b");
+
+        // Second call is served by the cache and does not see the external change
+        assertSame(getDao().get(1, CacheableRecord.class).orElseThrow(), first);
+
+        var stats = getDao().getEntityCacheStats(CacheableRecord.class).orElseThrow();
+        assertEquals(stats.getHits() - before.getHits(), 1);
+        assertEquals(stats.getMisses() - before.getMisses(), 1);
+
+        getDao().invalidateEntityCache(CacheableRecord.class);
+        assertEquals(getDao().get(1, CacheableRecord.class).orElseThrow().getValue(), "b");
+    }
+
+    public void testMissingRecordIsNotCached() {
+        assertTrue(getDao().get(1, CacheableRecord.class).isEmpty());
+        getDao().insert(new CacheableRecord(1, "a"));
+        assertEquals(getDao().get(1, CacheableRecord.class).orElseThrow().getValue(), "a");
+    }
+
+    public void testInvalidationOnUpdate() {
+        getDao().insert(new CacheableRecord(1, "a"));
+        getDao().get(1, CacheableRecord.class);
+
+        getDao().update(new CacheableRecord(1, "b"));
+        assertEquals(getDao().get(1, CacheableRecord.class).orElseThrow().getValue(), "b");
+
+        getDao().upsert(new CacheableRecord(1, "c"));
+        assertEquals(getDao().get(1, CacheableRecord.class).orElseThrow().getValue(), "c");
+
+        getDao().update(10, List.of(new CacheableRecord(1, "d")));
+        assertEquals(getDao().get(1, CacheableRecord.class).orElseThrow().getValue(), "d");
+    }
+
+    public void testInvalidationOnDelete() {
+        getDao().insert(10, List.of(new CacheableRecord(1, "a"), new CacheableRecord(2, "b")));
+        getDao().get(1, CacheableRecord.class);
+        getDao().get(2, CacheableRecord.class);
+
+        getDao().delete(1, CacheableRecord.class);
+        assertFalse(getDao().get(1, CacheableRecord.class).isPresent());
+
+        getDao().deleteAll(CacheableRecord.class);
+        assertFalse(getDao().get(2, CacheableRecord.class).isPresent());
+    }
+
+    public void testInvalidationOnTruncate() {
+        getDao().insert(new CacheableRecord(1, "a"));
+        getDao().get(1, CacheableRecord.class);
+
+        getDao().truncate(List.of(CacheableRecord.class));
+        assertFalse(getDao().get(1, CacheableRecord.class).isPresent());
+    }
+
+    public void testTransactionalUpdate() throws SQLException {
+        getDao().insert(new CacheableRecord(1, "a"));
+        getDao().get(1, CacheableRecord.class).orElseThrow();
+
+        try (var conn = getDao().getDataSource().getConnection()) {
+            conn.setAutoCommit(false);
+            getDao().update(conn, new CacheableRecord(1, "b"));
+
+            // Other connection reads committed row, it must not be cached
+            assertEquals(getDao().get(1, CacheableRecord.class).orElseThrow().getValue(), "a");
+            assertEquals(getDao().get(1, CacheableRecord.class).orElseThrow().getValue(), "a");
+
+            conn.commit();
+            assertEquals(getDao().get(1, CacheableRecord.class).orElseThrow().getValue(), "b");
+        }
+
+        // Transaction is finished, caching is resumed
+        var first = getDao().get(1, CacheableRecord.class).orElseThrow();
+        assertEquals(first.getValue(), "b");
+        assertSame(getDao().get(1, CacheableRecord.class).orElseThrow(), first);
+    }
+
+    public void testEviction() {
+        getDao().insert(10, List.of(
+            new CacheableRecord(1, "a"),
+            new CacheableRecord(2, "b"),
+            new CacheableRecord(3, "c")
+        ));
+        var before = getDao().getEntityCacheStats(CacheableRecord.class).orElseThrow();
+
+        getDao().get(1, CacheableRecord.class);
+        getDao().get(2, CacheableRecord.class);
+        getDao().get(3, CacheableRecord.class);
+
+        var stats = getDao().getEntityCacheStats(CacheableRecord.class).orElseThrow();
+        assertEquals(stats.getEvictions() - before.getEvictions(), 1);
+    }
+
+    public void testNotCacheable() {
+        assertFalse(getDao().getEntityCacheStats(RecordWithPrimitives.class).isPresent());
+    }
+
+    public void testLruEntityCache() {
+        var time = new long[]{0};
+        var cache = new LruEntityCache<Integer, CacheableRecord>(2, 10, TimeUnit.NANOSECONDS, () -> time[0]);
+
+        cache.put(1, new CacheableRecord(1, "a"));
+        cache.put(2, new CacheableRecord(2, "b"));
+        assertEquals(cache.get(1).getValue(), "a");
+
+        // Record 2 is least recently used
+        cache.put(3, new CacheableRecord(3, "c"));
+        assertNull(cache.get(2));
+        assertEquals(cache.size(), 2);
+
+        time[0] = 10;
+        assertNull(cache.get(1));
+        assertEquals(cache.size(), 1);
+
+        var stats = cache.getStats();
+        assertEquals(stats.getHits(), 1);
+        assertEquals(stats.getMisses(), 2);
+        assertEquals(stats.getEvictions(), 2);
+
+        cache.invalidateAll();
+        assertEquals(cache.size(), 0);
+    }
+}
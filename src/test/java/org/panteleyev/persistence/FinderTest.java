@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import org.panteleyev.persistence.annotations.Column;
+import org.panteleyev.persistence.base.Base;
+import org.panteleyev.persistence.model.IndexedRecord;
+import org.panteleyev.persistence.model.RecordWithAllTypes;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import static org.panteleyev.persistence.Query.Operator.EQ;
+import static org.panteleyev.persistence.Query.Operator.IS_NULL;
+import static org.panteleyev.persistence.base.Base.MYSQL_GROUP;
+import static org.panteleyev.persistence.base.Base.SQLITE_GROUP;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {SQLITE_GROUP, MYSQL_GROUP})
+public class FinderTest extends Base {
+    @BeforeMethod
+    public void createTable() {
+        getDao().createTables(List.of(IndexedRecord.class));
+        getDao().insert(10, List.of(
+            new IndexedRecord(1, "A1", "A"),
+            new IndexedRecord(2, "A2", "A"),
+            new IndexedRecord(3, "B1", "B"),
+            new IndexedRecord(4, "N1", null)
+        ));
+    }
+
+    @AfterMethod
+    public void resetIndexedLookups() {
+        getDao().setIndexedLookupsOnly(false);
+    }
+
+    private static Set<Integer> ids(List<IndexedRecord> records) {
+        return records.stream().map(IndexedRecord::getId).collect(Collectors.toSet());
+    }
+
+    public void testFindBy() {
+        var dao = getDao();
+
+        assertEquals(ids(dao.findBy(IndexedRecord.class, "category", "A")), Set.of(1, 2));
+        assertEquals(ids(dao.findBy(IndexedRecord.class, "category", null)), Set.of(4));
+        assertTrue(dao.findBy(IndexedRecord.class, "category", "C").isEmpty());
+        assertEquals(ids(dao.findBy(IndexedRecord.class, Column.ID, 3)), Set.of(3));
+
+        assertThrows(IllegalArgumentException.class, () -> dao.findBy(IndexedRecord.class, "x", "A"));
+        assertThrows(IllegalArgumentException.class, () -> dao.findBy(IndexedRecord.class, Column.ID, "3"));
+    }
+
+    public void testFindUniqueBy() {
+        var dao = getDao();
+
+        assertEquals(dao.findUniqueBy(IndexedRecord.class, "code", "B1").orElseThrow(),
+            new IndexedRecord(3, "B1", "B"));
+        assertEquals(dao.findUniqueBy(IndexedRecord.class, Column.ID, 2).orElseThrow().getCode(), "A2");
+        assertFalse(dao.findUniqueBy(IndexedRecord.class, "code", "C1").isPresent());
+
+        assertThrows(IllegalArgumentException.class, () -> dao.findUniqueBy(IndexedRecord.class, "category", "A"));
+        assertThrows(IllegalArgumentException.class, () -> dao.findUniqueBy(IndexedRecord.class, "code", null));
+    }
+
+    public void testIndexedLookupsOnly() {
+        var dao = getDao();
+        dao.setIndexedLookupsOnly(true);
+        assertTrue(dao.isIndexedLookupsOnly());
+
+        assertEquals(dao.findBy(IndexedRecord.class, "category", "B").size(), 1);
+        assertEquals(dao.select(IndexedRecord.class).list().size(), 4);
+        assertEquals(dao.select(IndexedRecord.class).where("category", EQ, "A").where("code", EQ, "A1")
+            .list().size(), 1);
+
+        // Checked before the statement is executed, table does not have to exist
+        assertThrows(IllegalArgumentException.class, () -> dao.findBy(RecordWithAllTypes.class, "a_field", "x"));
+        assertThrows(IllegalArgumentException.class,
+            () -> dao.select(RecordWithAllTypes.class).where("a_field", IS_NULL).list());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import org.panteleyev.persistence.base.Base;
+import org.panteleyev.persistence.model.GeneratedKeyRecord;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import static org.panteleyev.persistence.base.Base.MYSQL_GROUP;
+import static org.panteleyev.persistence.base.Base.SQLITE_GROUP;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {SQLITE_GROUP, MYSQL_GROUP})
+public class GeneratedKeyTest extends Base {
+    @BeforeMethod
+    public void createTable() {
+        getDao().createTables(List.of(GeneratedKeyRecord.class));
+    }
+
+    public void testInsert() {
+        var first = new GeneratedKeyRecord("first");
+        var second = new GeneratedKeyRecord("second");
+        getDao().insert(first);
+        getDao().insert(second);
+
+        assertEquals(first.getId(), Integer.valueOf(1));
+        assertEquals(second.getId(), Integer.valueOf(2));
+        assertEquals(getDao().get(2, GeneratedKeyRecord.class).orElseThrow(), second);
+    }
+
+    public void testPredefinedKey() {
+        getDao().insert(new GeneratedKeyRecord(100, "predefined"));
+
+        var record = new GeneratedKeyRecord("generated");
+        getDao().insert(record);
+        assertTrue(record.getId() > 100);
+        assertEquals(getDao().getAll(GeneratedKeyRecord.class).size(), 2);
+    }
+
+    public void testUpsert() {
+        var first = new GeneratedKeyRecord("first");
+        var record = new GeneratedKeyRecord(0, "generated");
+        getDao().upsert(first);
+        getDao().upsert(record);
+        assertNotNull(first.getId());
+        assertTrue(record.getId() > first.getId());
+        assertEquals(getDao().get(first.getId(), GeneratedKeyRecord.class).orElseThrow(), first);
+        assertEquals(getDao().get(record.getId(), GeneratedKeyRecord.class).orElseThrow(), record);
+
+        var records = List.of(new GeneratedKeyRecord("third"), new GeneratedKeyRecord(record.getId(), "updated"));
+        getDao().upsert(10, records);
+        assertTrue(records.get(0).getId() > record.getId());
+        assertEquals(getDao().getAll(GeneratedKeyRecord.class).size(), 3);
+        assertEquals(getDao().get(record.getId(), GeneratedKeyRecord.class).orElseThrow().getValue(), "updated");
+    }
+
+    public void testBatchInsert() {
+        var records = new ArrayList<GeneratedKeyRecord>();
+        for (int i = 0; i < 25; i++) {
+            records.add(new GeneratedKeyRecord("value " + i));
+        }
+        records.add(new GeneratedKeyRecord(1000, "predefined"));
+
+        getDao().insert(10, records);
+        assertBatchInserted(records);
+    }
+
+    public void testBulkInsert() {
+        var records = new ArrayList<GeneratedKeyRecord>();
+        for (int i = 0; i < 25; i++) {
+            records.add(new GeneratedKeyRecord("value " + i));
+        }
+
+        getDao().bulkInsert(10, 2, records);
+        assertBatchInserted(records);
+    }
+
+    private void assertBatchInserted(List<GeneratedKeyRecord> records) {
+        records.forEach(r -> assertNotNull(r.getId()));
+        assertEquals(records.stream().map(GeneratedKeyRecord::getId).collect(Collectors.toSet()).size(),
+            records.size());
+        assertEquals(new HashSet<>(getDao().getAll(GeneratedKeyRecord.class)), new HashSet<>(records));
+    }
+
+    public void testGeneratePrimaryKey() {
+        assertThrows(IllegalStateException.class, () -> getDao().generatePrimaryKey(GeneratedKeyRecord.class));
+    }
+}
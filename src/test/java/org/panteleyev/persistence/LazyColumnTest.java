@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import org.panteleyev.persistence.base.Base;
+import org.panteleyev.persistence.model.LazyRecord;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.panteleyev.persistence.base.Base.MYSQL_GROUP;
+import static org.panteleyev.persistence.base.Base.SQLITE_GROUP;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {SQLITE_GROUP, MYSQL_GROUP})
+public class LazyColumnTest extends Base {
+    private static final int COUNT = 20;
+
+    private final List<LazyRecord> records = new ArrayList<>();
+
+    @BeforeMethod
+    public void createTable() {
+        getDao().createTables(List.of(LazyRecord.class));
+
+        var random = new Random();
+        records.clear();
+        for (int i = 1; i <= COUNT; i++) {
+            var payload = new byte[100];
+            random.nextBytes(payload);
+            records.add(new LazyRecord(i, "name" + i, Lazy.of(payload), Lazy.of("{\"id\": " + i + "}")));
+        }
+        getDao().insert(10, records);
+    }
+
+    public void testLoadOnAccess() {
+        var record = getDao().get(5, LazyRecord.class).orElseThrow();
+        assertFalse(record.getPayload().isLoaded());
+        assertFalse(record.getJson().isLoaded());
+
+        assertEquals(record.getPayload().get(), records.get(4).getPayload().get());
+        assertTrue(record.getPayload().isLoaded());
+        assertFalse(record.getJson().isLoaded());
+
+        assertEquals(record, records.get(4));
+    }
+
+    public void testBatchLoad() {
+        var loaded = getDao().getAll(LazyRecord.class);
+        assertEquals(loaded.size(), COUNT);
+        loaded.forEach(r -> assertFalse(r.getPayload().isLoaded()));
+
+        getDao().load(loaded, "payload");
+        for (var record : loaded) {
+            assertTrue(record.getPayload().isLoaded());
+            assertFalse(record.getJson().isLoaded());
+            assertEquals(record.getPayload().get(), records.get(record.getId() - 1).getPayload().get());
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> getDao().load(loaded, "name"));
+        assertThrows(IllegalArgumentException.class, () -> getDao().load(loaded, "x"));
+    }
+
+    public void testDeletedRow() {
+        var record = getDao().get(1, LazyRecord.class).orElseThrow();
+        getDao().delete(record);
+        assertNull(record.getPayload().get());
+    }
+
+    public void testUpdate() {
+        var record = getDao().get(3, LazyRecord.class).orElseThrow();
+
+        // Unloaded lazy columns are not updated
+        getDao().update(new LazyRecord(3, "updated", record.getPayload(), Lazy.of("{}")));
+        var updated = getDao().get(3, LazyRecord.class).orElseThrow();
+        assertEquals(updated.getName(), "updated");
+        assertEquals(updated.getPayload().get(), records.get(2).getPayload().get());
+        assertEquals(updated.getJson().get(), "{}");
+
+        var payload = new byte[] {1, 2, 3};
+        getDao().update(new LazyRecord(3, "updated", Lazy.of(payload), updated.getJson()));
+        assertEquals(getDao().get(3, LazyRecord.class).orElseThrow().getPayload().get(), payload);
+    }
+
+    public void testBatchWrites() {
+        var loaded = getDao().getAll(LazyRecord.class);
+        getDao().load(loaded.subList(0, 5), "json");
+
+        // Unloaded lazy columns are not updated and not loaded
+        var renamed = new ArrayList<LazyRecord>();
+        for (var r : loaded) {
+            renamed.add(new LazyRecord(r.getId(), "renamed", r.getPayload(), r.getJson()));
+        }
+        getDao().update(7, renamed);
+        renamed.forEach(r -> assertFalse(r.getPayload().isLoaded()));
+
+        // Upsert writes all columns, unloaded values are loaded in advance
+        var updated = getDao().getAll(LazyRecord.class);
+        getDao().upsert(7, updated);
+        updated.forEach(r -> assertTrue(r.getPayload().isLoaded() && r.getJson().isLoaded()));
+
+        for (var r : getDao().getAll(LazyRecord.class)) {
+            var expected = records.get(r.getId() - 1);
+            assertEquals(r.getName(), "renamed");
+            assertEquals(r.getPayload().get(), expected.getPayload().get());
+            assertEquals(r.getJson().get(), expected.getJson().get());
+        }
+    }
+
+    public void testDirtyTracking() {
+        getDao().setDirtyTracking(true);
+        try {
+            var record = getDao().get(2, LazyRecord.class).orElseThrow();
+            getDao().load(List.of(record), "json");
+
+            // Unloaded values are not loaded for comparison
+            assertFalse(getDao().updateChanged(record));
+            assertFalse(record.getPayload().isLoaded());
+        } finally {
+            getDao().setDirtyTracking(false);
+        }
+    }
+
+    public void testQueries() {
+        assertEquals(getDao().select(LazyRecord.class).where("name", Query.Operator.EQ, "name2").list().size(), 1);
+        assertThrows(IllegalArgumentException.class,
+            () -> getDao().select(LazyRecord.class).where("payload", Query.Operator.IS_NULL));
+        assertThrows(IllegalArgumentException.class, () -> getDao().project(LazyRecord.class, "payload"));
+
+        var projected = getDao().project(LazyRecord.class, "name");
+        assertEquals(projected.size(), COUNT);
+        assertEquals(projected.get(0).getJson().get(), records.get(projected.get(0).getId() - 1).getJson().get());
+    }
+}
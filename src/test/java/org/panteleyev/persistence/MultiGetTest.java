@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import org.panteleyev.persistence.base.Base;
+import org.panteleyev.persistence.model.RecordWithPrimitives;
+import org.panteleyev.persistence.model.UuidPrimaryKeyRecord;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import static org.panteleyev.persistence.base.Base.MYSQL_GROUP;
+import static org.panteleyev.persistence.base.Base.SQLITE_GROUP;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {SQLITE_GROUP, MYSQL_GROUP})
+public class MultiGetTest extends Base {
+    @DataProvider
+    public Object[][] testMultiGetDataProvider() {
+        return new Object[][]{
+            {1},
+            {3},
+            {DAO.MAX_IN_LIST_SIZE},
+            {DAO.MAX_IN_LIST_SIZE * 2 + 7}
+        };
+    }
+
+    @Test(dataProvider = "testMultiGetDataProvider")
+    public void testMultiGetInteger(int count) {
+        var clazz = RecordWithPrimitives.class;
+
+        getDao().createTables(Collections.singletonList(clazz));
+        getDao().preload(Collections.singletonList(clazz));
+
+        var records = new ArrayList<RecordWithPrimitives>(count * 2);
+        for (int i = 0; i < count * 2; i++) {
+            records.add(RecordWithPrimitives.newRecord(getDao().generatePrimaryKey(clazz), RANDOM));
+        }
+        getDao().insert(100, records);
+
+        // Every other record plus some missing keys and duplicates
+        var ids = new ArrayList<Integer>();
+        var expected = new ArrayList<RecordWithPrimitives>();
+        for (int i = 0; i < records.size(); i += 2) {
+            ids.add(records.get(i).getPrimaryKey());
+            expected.add(records.get(i));
+        }
+        ids.add(-1);
+        ids.add(ids.get(0));
+
+        var result = getDao().getAll(ids, clazz);
+
+        assertEquals(result.size(), expected.size());
+        for (var r : expected) {
+            assertEquals(result.get(r.getPrimaryKey()), r);
+        }
+    }
+
+    @Test
+    public void testMultiGetUuid() {
+        var clazz = UuidPrimaryKeyRecord.class;
+
+        getDao().createTables(Collections.singletonList(clazz));
+
+        var records = new ArrayList<UuidPrimaryKeyRecord>();
+        for (int i = 0; i < 10; i++) {
+            records.add(new UuidPrimaryKeyRecord(UUID.randomUUID(), UUID.randomUUID().toString()));
+        }
+        getDao().insert(10, records);
+
+        var ids = new ArrayList<UUID>();
+        records.forEach(r -> ids.add(r.getPrimaryKey()));
+
+        var result = getDao().getAll(ids, clazz);
+        assertEquals(result.size(), records.size());
+        for (var r : records) {
+            assertEquals(result.get(r.getPrimaryKey()), r);
+        }
+
+        assertTrue(getDao().getAll(List.<UUID>of(), clazz).isEmpty());
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import org.panteleyev.persistence.base.Base;
+import org.panteleyev.persistence.model.RecordWithPrimitives;
+import org.panteleyev.persistence.model.StringPrimaryKeyRecord;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import static org.panteleyev.persistence.base.Base.MYSQL_GROUP;
+import static org.panteleyev.persistence.base.Base.SQLITE_GROUP;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {SQLITE_GROUP, MYSQL_GROUP})
+public class PageTest extends Base {
+    @DataProvider
+    public Object[][] testPageDataProvider() {
+        return new Object[][]{
+            {25, 10},
+            {30, 10},
+            {5, 10}
+        };
+    }
+
+    @Test(dataProvider = "testPageDataProvider")
+    public void testPageInteger(int count, int limit) {
+        var clazz = RecordWithPrimitives.class;
+
+        getDao().createTables(Collections.singletonList(clazz));
+        getDao().preload(Collections.singletonList(clazz));
+
+        var records = new ArrayList<RecordWithPrimitives>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(RecordWithPrimitives.newRecord(getDao().generatePrimaryKey(clazz), RANDOM));
+        }
+        getDao().insert(limit, records);
+
+        var firstPage = getDao().page(clazz, null, limit);
+        assertEquals(firstPage, records.subList(0, Math.min(limit, count)));
+
+        assertPages(getDao().pages(clazz, limit), records, limit);
+    }
+
+    @Test(dataProvider = "testPageDataProvider")
+    public void testPageString(int count, int limit) {
+        var clazz = StringPrimaryKeyRecord.class;
+
+        getDao().createTables(Collections.singletonList(clazz));
+
+        var records = new ArrayList<StringPrimaryKeyRecord>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(new StringPrimaryKeyRecord(UUID.randomUUID().toString(), UUID.randomUUID().toString()));
+        }
+        getDao().insert(limit, records);
+
+        records.sort(Comparator.comparing(StringPrimaryKeyRecord::getPrimaryKey));
+
+        var lastKey = records.get(records.size() - 1).getPrimaryKey();
+        assertTrue(getDao().page(clazz, lastKey, limit).isEmpty());
+
+        assertPages(getDao().pages(clazz, limit), records, limit);
+    }
+
+    private static <T extends Record> void assertPages(Iterable<List<T>> pages, List<T> expected, int limit) {
+        var retrieved = new ArrayList<T>();
+        for (var page : pages) {
+            assertTrue(!page.isEmpty() && page.size() <= limit);
+            retrieved.addAll(page);
+        }
+        assertEquals(retrieved, expected);
+    }
+}
@@ -32,8 +32,13 @@ import org.panteleyev.persistence.model.NoPrimaryKeyRecord;
 import org.panteleyev.persistence.model.NonAutoIncrementPrimaryKeyRecord;
 import org.panteleyev.persistence.model.StringPrimaryKeyRecord;
 import org.testng.annotations.Test;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import static org.panteleyev.persistence.base.Base.GENERIC_GROUP;
 import static org.testng.Assert.assertEquals;
 
@@ -81,4 +86,44 @@ public class PrimaryKeyTest extends Base {
 
         var key = dao.generatePrimaryKey(NonAutoIncrementPrimaryKeyRecord.class);
     }
+
+    @Test
+    public void testGeneratePrimaryKeys() {
+        var dao = new DAO();
+
+        assertEquals((int) dao.generatePrimaryKey(IntegerPrimaryKeyRecord.class), 1);
+        assertEquals(dao.generatePrimaryKeys(IntegerPrimaryKeyRecord.class, 3), List.of(2, 3, 4));
+        assertEquals(dao.generatePrimaryKeys(IntegerPrimaryKeyRecord.class, 0), List.of());
+        assertEquals((int) dao.generatePrimaryKey(IntegerPrimaryKeyRecord.class), 5);
+    }
+
+    @Test
+    public void testConcurrentGeneration() throws Exception {
+        var dao = new DAO();
+        var threads = 8;
+        var count = 10_000;
+
+        var executor = Executors.newFixedThreadPool(threads);
+        try {
+            var futures = new ArrayList<Future<List<Integer>>>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    var keys = new ArrayList<Integer>(count);
+                    for (int i = 0; i < count; i++) {
+                        keys.add(dao.generatePrimaryKey(IntegerPrimaryKeyRecord.class));
+                    }
+                    return keys;
+                }));
+            }
+
+            var all = new HashSet<Integer>();
+            for (var future : futures) {
+                all.addAll(future.get());
+            }
+            assertEquals(all.size(), threads * count);
+            assertEquals((int) Collections.max(all), threads * count);
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
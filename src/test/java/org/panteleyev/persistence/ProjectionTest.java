@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import org.panteleyev.persistence.base.Base;
+import org.panteleyev.persistence.model.IndexedRecord;
+import org.panteleyev.persistence.model.IndexedRecordCode;
+import org.panteleyev.persistence.model.RecordWithAllTypes;
+import org.testng.annotations.Test;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import static org.panteleyev.persistence.base.Base.MYSQL_GROUP;
+import static org.panteleyev.persistence.base.Base.SQLITE_GROUP;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertThrows;
+
+@Test(groups = {SQLITE_GROUP, MYSQL_GROUP})
+public class ProjectionTest extends Base {
+    private static final List<IndexedRecord> RECORDS = List.of(
+        new IndexedRecord(1, "A1", "A"),
+        new IndexedRecord(2, "A2", "A"),
+        new IndexedRecord(3, "B1", "B")
+    );
+
+    public void testSameClassProjection() {
+        var dao = getDao();
+        dao.createTables(List.of(IndexedRecord.class));
+        dao.insert(10, RECORDS);
+
+        var records = dao.project(IndexedRecord.class, "code");
+        records.sort(Comparator.comparing(IndexedRecord::getId));
+        assertEquals(records, List.of(
+            new IndexedRecord(1, "A1", null),
+            new IndexedRecord(2, "A2", null),
+            new IndexedRecord(3, "B1", null)
+        ));
+
+        assertThrows(IllegalArgumentException.class, () -> dao.project(IndexedRecord.class, "x"));
+    }
+
+    public void testFieldAssignmentProjection() {
+        var dao = getDao();
+        dao.createTables(List.of(RecordWithAllTypes.class));
+        var record = RecordWithAllTypes.newRecord(1, new Random());
+        dao.insert(record);
+
+        var projected = dao.project(RecordWithAllTypes.class, "a_field").get(0);
+        assertEquals(projected.getId(), 1);
+        assertEquals(projected.getA(), record.getA());
+        assertNull(projected.getB());
+        assertNull(projected.getF());
+    }
+
+    public void testProjectionClass() {
+        var dao = getDao();
+        dao.createTables(List.of(IndexedRecord.class));
+        dao.insert(10, RECORDS);
+
+        var codes = dao.project(IndexedRecord.class, IndexedRecordCode.class);
+        codes.sort(Comparator.comparing(IndexedRecordCode::getId));
+        assertEquals(codes, List.of(
+            new IndexedRecordCode(1, "A1"),
+            new IndexedRecordCode(2, "A2"),
+            new IndexedRecordCode(3, "B1")
+        ));
+
+        assertThrows(IllegalArgumentException.class, () -> dao.project(RecordWithAllTypes.class,
+            IndexedRecordCode.class));
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import org.panteleyev.persistence.annotations.Column;
+import org.panteleyev.persistence.base.Base;
+import org.panteleyev.persistence.model.IndexedRecord;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import static org.panteleyev.persistence.Query.Operator.EQ;
+import static org.panteleyev.persistence.Query.Operator.GE;
+import static org.panteleyev.persistence.Query.Operator.IN;
+import static org.panteleyev.persistence.Query.Operator.IS_NOT_NULL;
+import static org.panteleyev.persistence.Query.Operator.IS_NULL;
+import static org.panteleyev.persistence.Query.Operator.LIKE;
+import static org.panteleyev.persistence.Query.Operator.NE;
+import static org.panteleyev.persistence.base.Base.MYSQL_GROUP;
+import static org.panteleyev.persistence.base.Base.SQLITE_GROUP;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {SQLITE_GROUP, MYSQL_GROUP})
+public class QueryTest extends Base {
+    @BeforeMethod
+    public void createTable() {
+        getDao().createTables(List.of(IndexedRecord.class));
+        getDao().insert(10, List.of(
+            new IndexedRecord(1, "A1", "A"),
+            new IndexedRecord(2, "A2", "A"),
+            new IndexedRecord(3, "B1", "B"),
+            new IndexedRecord(4, "B2", "B"),
+            new IndexedRecord(5, "N1", null)
+        ));
+    }
+
+    private static List<Integer> ids(List<IndexedRecord> records) {
+        return records.stream().map(IndexedRecord::getId).collect(Collectors.toList());
+    }
+
+    public void testConditions() {
+        var dao = getDao();
+
+        assertEquals(ids(dao.select(IndexedRecord.class).where("category", EQ, "A").orderBy(Column.ID).list()),
+            List.of(1, 2));
+        assertEquals(ids(dao.select(IndexedRecord.class).where("category", NE, "A").orderBy(Column.ID).list()),
+            List.of(3, 4));
+        assertEquals(ids(dao.select(IndexedRecord.class).where("category", IS_NULL).list()), List.of(5));
+        assertEquals(dao.select(IndexedRecord.class).where("category", IS_NOT_NULL).list().size(), 4);
+        assertEquals(ids(dao.select(IndexedRecord.class)
+                .where("code", LIKE, "B%")
+                .where(Column.ID, GE, 4)
+                .list()),
+            List.of(4));
+        assertEquals(Set.copyOf(ids(dao.select(IndexedRecord.class).where(Column.ID, IN, List.of(1, 3, 5)).list())),
+            Set.of(1, 3, 5));
+        assertTrue(dao.select(IndexedRecord.class).where("category", EQ, "C").list().isEmpty());
+    }
+
+    public void testOrderAndLimit() {
+        var dao = getDao();
+
+        assertEquals(ids(dao.select(IndexedRecord.class).orderByDescending(Column.ID).limit(2).list()),
+            List.of(5, 4));
+        assertEquals(ids(dao.select(IndexedRecord.class).orderBy(Column.ID).limit(2).offset(2).list()),
+            List.of(3, 4));
+        assertEquals(ids(dao.select(IndexedRecord.class)
+                .where("category", IS_NOT_NULL)
+                .orderByDescending("category")
+                .orderBy("code")
+                .list()),
+            List.of(3, 4, 1, 2));
+
+        var first = dao.select(IndexedRecord.class).where("category", EQ, "B").orderByDescending("code").first();
+        assertEquals(first.orElseThrow(), new IndexedRecord(4, "B2", "B"));
+        assertFalse(dao.select(IndexedRecord.class).where("category", EQ, "C").first().isPresent());
+    }
+
+    public void testShapeReuse() {
+        var dao = getDao();
+
+        var q1 = dao.select(IndexedRecord.class).where("category", EQ, "A").limit(10);
+        var q2 = dao.select(IndexedRecord.class).where("category", EQ, "B").limit(20);
+        assertEquals(ids(q2.list()).size(), 2);
+        assertEquals(q1.getShape(10), q2.getShape(20));
+
+        assertSame(dao.getQueryStatement(q1, 10), dao.getQueryStatement(q2, 20));
+    }
+
+    public void testValidation() {
+        var dao = getDao();
+
+        assertThrows(IllegalArgumentException.class, () -> dao.select(IndexedRecord.class).where("x", EQ, "A"));
+        assertThrows(IllegalArgumentException.class, () -> dao.select(IndexedRecord.class).orderBy("x"));
+        assertThrows(IllegalArgumentException.class, () -> dao.select(IndexedRecord.class).where(Column.ID, EQ, "A"));
+        assertThrows(IllegalArgumentException.class, () -> dao.select(IndexedRecord.class).where("code", EQ, null));
+        assertThrows(IllegalArgumentException.class, () -> dao.select(IndexedRecord.class).where("code", IS_NULL, "A"));
+        assertThrows(IllegalArgumentException.class, () -> dao.select(IndexedRecord.class).where("code", EQ));
+        assertThrows(IllegalArgumentException.class,
+            () -> dao.select(IndexedRecord.class).where(Column.ID, LIKE, "1%"));
+        assertThrows(IllegalArgumentException.class, () -> dao.select(IndexedRecord.class).where(Column.ID, IN, 1));
+        assertThrows(IllegalArgumentException.class,
+            () -> dao.select(IndexedRecord.class).where(Column.ID, IN, List.of()));
+        assertThrows(IllegalArgumentException.class, () -> dao.select(IndexedRecord.class).limit(0));
+        assertThrows(IllegalStateException.class, () -> dao.select(IndexedRecord.class).offset(1).list());
+    }
+}
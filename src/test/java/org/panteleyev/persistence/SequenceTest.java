@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import org.panteleyev.persistence.base.Base;
+import org.panteleyev.persistence.model.SequenceRecord;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import static org.panteleyev.persistence.base.Base.MYSQL_GROUP;
+import static org.panteleyev.persistence.base.Base.SQLITE_GROUP;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertThrows;
+
+@Test(groups = {SQLITE_GROUP, MYSQL_GROUP})
+public class SequenceTest extends Base {
+    @BeforeMethod
+    public void createTable() {
+        getDao().createTables(List.of(SequenceRecord.class));
+        getDao().truncate(List.of(SequenceRecord.class));
+    }
+
+    private long getSequenceValue() throws SQLException {
+        try (var conn = getDao().getDataSource().getConnection();
+             var st = conn.prepareStatement("SELECT seq_value FROM " + DAO.SEQUENCE_TABLE + " WHERE seq_name = ?"))
+        {
+            st.setString(1, "sequence_record");
+            try (var rs = st.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    public void testBlockAllocation() throws SQLException {
+        assertEquals((long) getDao().generatePrimaryKey(SequenceRecord.class), 1L);
+        assertEquals(getSequenceValue(), 10L);
+
+        for (long i = 2; i <= 10; i++) {
+            assertEquals((long) getDao().generatePrimaryKey(SequenceRecord.class), i);
+        }
+        assertEquals(getSequenceValue(), 10L);
+
+        assertEquals((long) getDao().generatePrimaryKey(SequenceRecord.class), 11L);
+        assertEquals(getSequenceValue(), 20L);
+
+        // Range larger than the block is reserved at once
+        assertEquals(getDao().generatePrimaryKeys(SequenceRecord.class, 25),
+            LongStream.rangeClosed(21, 45).boxed().collect(Collectors.toList()));
+        assertEquals(getSequenceValue(), 45L);
+    }
+
+    public void testInitializedFromTable() {
+        getDao().insert(10, List.of(new SequenceRecord(100, "a"), new SequenceRecord(200, "b")));
+
+        var dao = new DAO(getDao().getDataSource(), getDao().getDatabaseType());
+        assertEquals((long) dao.generatePrimaryKey(SequenceRecord.class), 201L);
+    }
+
+    public void testSeveralInstances() {
+        var first = new DAO(getDao().getDataSource(), getDao().getDatabaseType());
+        var second = new DAO(getDao().getDataSource(), getDao().getDatabaseType());
+
+        var records = new ArrayList<SequenceRecord>();
+        for (int i = 0; i < 25; i++) {
+            records.add(new SequenceRecord(first.generatePrimaryKey(SequenceRecord.class), "first"));
+            records.add(new SequenceRecord(second.generatePrimaryKey(SequenceRecord.class), "second"));
+        }
+        getDao().insert(10, records);
+
+        var keys = records.stream().map(SequenceRecord::getId).collect(Collectors.toCollection(HashSet::new));
+        assertEquals(keys.size(), records.size());
+        assertEquals(getDao().getAll(SequenceRecord.class).size(), records.size());
+    }
+
+    public void testTruncate() {
+        getDao().generatePrimaryKey(SequenceRecord.class);
+        getDao().truncate(List.of(SequenceRecord.class));
+        assertEquals((long) getDao().generatePrimaryKey(SequenceRecord.class), 1L);
+    }
+
+    public void testBlockKeyCounter() {
+        var sequence = new long[]{0};
+        var allocations = new ArrayList<Integer>();
+        var counter = new BlockKeyCounter(true, 10, size -> {
+            allocations.add(size);
+            var first = sequence[0] + 1;
+            sequence[0] += size;
+            return first;
+        });
+
+        for (int i = 1; i <= 15; i++) {
+            assertEquals(counter.reserve(1), i);
+        }
+        assertEquals(allocations, List.of(10, 10));
+
+        // Rest of the block is discarded when range does not fit
+        assertEquals(counter.reserve(8), 21);
+        assertEquals(counter.reserve(25), 31);
+        assertEquals(counter.reserve(1), 56);
+        assertEquals(allocations, List.of(10, 10, 10, 25, 10));
+
+        counter.set(0);
+        assertEquals(counter.reserve(1), 66);
+
+        sequence[0] = Integer.MAX_VALUE - 5;
+        counter.set(0);
+        assertThrows(IllegalStateException.class, () -> counter.reserve(10));
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import org.panteleyev.persistence.base.Base;
+import org.panteleyev.persistence.model.RecordWithPrimitives;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.panteleyev.persistence.base.Base.MYSQL_GROUP;
+import static org.panteleyev.persistence.base.Base.SQLITE_GROUP;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {SQLITE_GROUP, MYSQL_GROUP})
+public class StatementCacheTest extends Base {
+    @AfterMethod
+    public void disableCache() {
+        getDao().setStatementCacheSize(0);
+    }
+
+    private List<RecordWithPrimitives> givenRecords(int count) {
+        var clazz = RecordWithPrimitives.class;
+        getDao().createTables(Collections.singletonList(clazz));
+        getDao().preload(Collections.singletonList(clazz));
+
+        var records = new ArrayList<RecordWithPrimitives>();
+        for (int i = 0; i < count; i++) {
+            records.add(RecordWithPrimitives.newRecord(getDao().generatePrimaryKey(clazz), RANDOM));
+        }
+        return records;
+    }
+
+    public void testStatementReuse() throws Exception {
+        var records = givenRecords(10);
+
+        getDao().setStatementCacheSize(16);
+        try (var conn = getDao().getConnection()) {
+            for (var r : records) {
+                getDao().insert(conn, r);
+            }
+
+            for (var r : records) {
+                assertEquals(getDao().get(conn, r.getPrimaryKey(), RecordWithPrimitives.class).orElseThrow(), r);
+            }
+
+            var all = getDao().getAll(conn, RecordWithPrimitives.class);
+            assertEquals(all.size(), records.size());
+
+            for (var r : records) {
+                getDao().delete(conn, r);
+            }
+            assertTrue(getDao().getAll(conn, RecordWithPrimitives.class).isEmpty());
+
+            getDao().releaseStatements(conn);
+        }
+
+        var stats = getDao().getStatementCacheStats();
+        // insert, select by id, select all, delete
+        assertEquals(stats.getMisses(), 4);
+        assertEquals(stats.getHits(), 3 * records.size() - 3 + 1);
+        assertEquals(stats.getEvictions(), 0);
+        assertTrue(stats.getHitRate() > 0.8);
+    }
+
+    public void testEviction() throws Exception {
+        var records = givenRecords(5);
+
+        getDao().setStatementCacheSize(1);
+        try (var conn = getDao().getConnection()) {
+            for (var r : records) {
+                getDao().insert(conn, r);
+                assertEquals(getDao().get(conn, r.getPrimaryKey(), RecordWithPrimitives.class).orElseThrow(), r);
+            }
+            getDao().releaseStatements(conn);
+        }
+
+        var stats = getDao().getStatementCacheStats();
+        assertEquals(stats.getHits(), 0);
+        assertEquals(stats.getMisses(), 2 * records.size());
+        assertEquals(stats.getEvictions(), 2 * records.size() - 1);
+    }
+
+    public void testReleaseToClosedCache() throws Exception {
+        var cache = new StatementCache(16);
+        try (var conn = getDao().getConnection()) {
+            var entry = cache.prepare(conn, "SELECT 1");
+            cache.close();
+
+            // Statement checked out before the cache was closed, e.g. by resize, is not cached
+            entry.close();
+            assertTrue(entry.getStatement().isClosed());
+            assertEquals(cache.size(), 0);
+        }
+    }
+
+    public void testClosedConnection() throws Exception {
+        var records = givenRecords(2);
+
+        getDao().setStatementCacheSize(16);
+        try (var conn = getDao().getConnection()) {
+            getDao().insert(conn, records.get(0));
+        }
+
+        // Statements of the closed connection are not reused
+        try (var conn = getDao().getConnection()) {
+            getDao().insert(conn, records.get(1));
+            getDao().releaseStatements(conn);
+        }
+
+        assertEquals(getDao().getStatementCacheStats().getHits(), 0);
+        assertEquals(getDao().getAll(RecordWithPrimitives.class).size(), records.size());
+    }
+
+    public void testStatementCacheRemovesClosedConnections() throws Exception {
+        var cache = new StatementCache(16);
+
+        var closed = mock(Connection.class);
+        when(closed.prepareStatement(anyString())).then(i -> mock(PreparedStatement.class));
+        var open = mock(Connection.class);
+        when(open.prepareStatement(anyString())).then(i -> mock(PreparedStatement.class));
+
+        cache.prepare(closed, "SELECT 1").close();
+        cache.prepare(open, "SELECT 1").close();
+        assertEquals(cache.size(), 2);
+
+        when(closed.isClosed()).thenReturn(true);
+        cache.prepare(open, "SELECT 2").close();
+        assertEquals(cache.size(), 3);
+
+        // Closed connections are purged periodically on release
+        for (int i = 0; i < StatementCache.PURGE_INTERVAL; i++) {
+            cache.prepare(open, "SELECT 2").close();
+        }
+        assertEquals(cache.size(), 2);
+        assertEquals(cache.getStats().getMisses(), 3);
+    }
+}
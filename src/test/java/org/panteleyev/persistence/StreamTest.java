@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import org.panteleyev.persistence.base.Base;
+import org.testng.annotations.Test;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.stream.Collectors;
+import static org.panteleyev.persistence.base.Base.MYSQL_GROUP;
+import static org.panteleyev.persistence.base.Base.SQLITE_GROUP;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+@Test(groups = {SQLITE_GROUP, MYSQL_GROUP})
+public class StreamTest extends Base {
+    private static final int RECORD_COUNT = 50;
+
+    @Test(dataProvider = "recordClasses")
+    public void testStream(Class<? extends Record<Integer>> clazz) throws Exception {
+        var records = givenRecords(clazz);
+
+        try (var stream = getDao().stream(clazz)) {
+            var retrieved = stream.collect(Collectors.toMap(Record::getPrimaryKey, r -> r));
+            assertEquals(retrieved, records);
+        }
+    }
+
+    @Test(dataProvider = "recordClasses")
+    public void testStreamWithConnection(Class<? extends Record<Integer>> clazz) throws Exception {
+        var records = givenRecords(clazz);
+
+        getDao().setFetchSize(7);
+        try (var conn = getDao().getConnection()) {
+            try (var stream = getDao().stream(conn, clazz)) {
+                assertEquals(stream.limit(10).count(), 10);
+            }
+
+            // Connection must stay open after stream is closed
+            assertFalse(conn.isClosed());
+
+            try (var stream = getDao().stream(conn, clazz)) {
+                assertEquals(stream.count(), records.size());
+            }
+        } finally {
+            getDao().setFetchSize(0);
+        }
+    }
+
+    @Test(dataProvider = "recordClasses")
+    public void testForEach(Class<? extends Record<Integer>> clazz) throws Exception {
+        var records = givenRecords(clazz);
+
+        var retrieved = new ArrayList<Record<Integer>>();
+        getDao().forEach(clazz, retrieved::add);
+
+        assertEquals(retrieved.size(), records.size());
+        for (var r : retrieved) {
+            assertEquals(r, records.get(r.getPrimaryKey()));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNegativeFetchSize() {
+        getDao().setFetchSize(-1);
+    }
+
+    private <T extends Record<Integer>> HashMap<Integer, T> givenRecords(Class<T> clazz) throws Exception {
+        getDao().createTables(Collections.singletonList(clazz));
+        getDao().preload(Collections.singletonList(clazz));
+
+        var records = new HashMap<Integer, T>();
+        var list = new ArrayList<T>();
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            var record = givenRandomRecord(clazz);
+            records.put(record.getPrimaryKey(), record);
+            list.add(record);
+        }
+        getDao().insert(10, list);
+        return records;
+    }
+}
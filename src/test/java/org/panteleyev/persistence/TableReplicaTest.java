@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import org.panteleyev.persistence.base.Base;
+import org.panteleyev.persistence.model.IndexedRecord;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import static org.panteleyev.persistence.base.Base.MYSQL_GROUP;
+import static org.panteleyev.persistence.base.Base.SQLITE_GROUP;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = {SQLITE_GROUP, MYSQL_GROUP})
+public class TableReplicaTest extends Base {
+    @BeforeMethod
+    public void createTable() {
+        getDao().createTables(List.of(IndexedRecord.class));
+        getDao().insert(10, List.of(
+            new IndexedRecord(1, "A1", "A"),
+            new IndexedRecord(2, "A2", "A"),
+            new IndexedRecord(3, "B1", "B"),
+            new IndexedRecord(4, "N1", null)
+        ));
+    }
+
+    @AfterMethod
+    public void removeReplica() {
+        getDao().removeReplica(IndexedRecord.class);
+    }
+
+    private static Set<Integer> ids(List<IndexedRecord> records) {
+        return records.stream().map(IndexedRecord::getId).collect(Collectors.toSet());
+    }
+
+    public void testLookups() {
+        var replica = getDao().replicate(IndexedRecord.class);
+        assertSame(getDao().replicate(IndexedRecord.class), replica);
+        assertSame(getDao().getReplica(IndexedRecord.class).orElseThrow(), replica);
+
+        assertEquals(replica.size(), 4);
+        assertEquals(replica.getIndexedColumns(), Set.of("code", "category"));
+        assertEquals(replica.get(3).orElseThrow(), new IndexedRecord(3, "B1", "B"));
+
+        assertEquals(ids(replica.findBy("category", "A")), Set.of(1, 2));
+        assertTrue(replica.findBy("category", "C").isEmpty());
+        assertTrue(replica.findBy("category", null).isEmpty());
+        assertEquals(replica.findUnique("code", "B1").orElseThrow().getId(), Integer.valueOf(3));
+        assertFalse(replica.findUnique("code", "C1").isPresent());
+
+        assertThrows(IllegalArgumentException.class, () -> replica.findBy("id", 1));
+        assertThrows(IllegalArgumentException.class, () -> replica.findUnique("category", "A"));
+    }
+
+    public void testSynchronizedByWrites() {
+        var replica = getDao().replicate(IndexedRecord.class);
+
+        getDao().insert(new IndexedRecord(5, "B2", "B"));
+        assertEquals(ids(replica.findBy("category", "B")), Set.of(3, 5));
+
+        getDao().update(new IndexedRecord(1, "A1", "B"));
+        assertEquals(ids(replica.findBy("category", "A")), Set.of(2));
+        assertEquals(ids(replica.findBy("category", "B")), Set.of(1, 3, 5));
+
+        getDao().upsert(new IndexedRecord(6, "C1", "C"));
+        assertEquals(replica.findUnique("code", "C1").orElseThrow().getId(), Integer.valueOf(6));
+
+        getDao().delete(3, IndexedRecord.class);
+        getDao().delete(10, List.of(new IndexedRecord(5, "B2", "B")));
+        assertEquals(ids(replica.findBy("category", "B")), Set.of(1));
+        assertEquals(replica.size(), 4);
+
+        getDao().deleteAll(IndexedRecord.class);
+        assertEquals(replica.size(), 0);
+    }
+
+    public void testIncrementalUpdate() {
+        var replica = getDao().replicate(IndexedRecord.class);
+        var categoryA = replica.findBy("category", "A");
+        var categoryB = replica.findBy("category", "B");
+        var codeA2 = replica.findBy("code", "A2");
+
+        getDao().update(new IndexedRecord(1, "A1", "C"));
+
+        // Returned lists are not modified, buckets of unchanged records are reused
+        assertEquals(ids(categoryA), Set.of(1, 2));
+        assertEquals(ids(replica.findBy("category", "A")), Set.of(2));
+        assertEquals(ids(replica.findBy("category", "C")), Set.of(1));
+        assertSame(replica.findBy("category", "B"), categoryB);
+        assertSame(replica.findBy("code", "A2"), codeA2);
+        assertEquals(replica.findUnique("code", "A1").orElseThrow().getCategory(), "C");
+    }
+
+    public void testFailedWrite() {
+        var replica = getDao().replicate(IndexedRecord.class);
+
+        // Duplicate code, batch is rolled back
+        assertThrows(RuntimeException.class, () -> getDao().bulkInsert(10, 10, List.of(
+            new IndexedRecord(5, "C1", "C"),
+            new IndexedRecord(6, "A1", "C")
+        )));
+        assertEquals(replica.size(), 4);
+        assertTrue(replica.findBy("category", "C").isEmpty());
+    }
+
+    public void testRolledBackWrite() throws SQLException {
+        var replica = getDao().replicate(IndexedRecord.class);
+
+        try (var conn = getDao().getDataSource().getConnection()) {
+            conn.setAutoCommit(false);
+            getDao().insert(conn, new IndexedRecord(5, "C1", "C"));
+            getDao().update(conn, new IndexedRecord(1, "A1", "C"));
+            conn.rollback();
+            conn.setAutoCommit(true);
+        }
+
+        assertEquals(replica.size(), 4);
+        assertTrue(replica.findBy("category", "C").isEmpty());
+        assertEquals(ids(replica.findBy("category", "A")), Set.of(1, 2));
+
+        try (var conn = getDao().getDataSource().getConnection()) {
+            conn.setAutoCommit(false);
+            getDao().deleteAll(conn, IndexedRecord.class);
+            conn.rollback();
+            conn.setAutoCommit(true);
+        }
+        assertEquals(replica.size(), 4);
+    }
+
+    public void testRefresh() throws SQLException {
+        var replica = getDao().replicate(IndexedRecord.class);
+
+        try (var conn = getDao().getDataSource().getConnection();
+             var st = conn.prepareStatement("DELETE FROM indexed_record WHERE id = 1"))
+        {
+            st.executeUpdate();
+        }
+        assertEquals(replica.size(), 4);
+
+        replica.refresh();
+        assertEquals(replica.size(), 3);
+        assertFalse(replica.findUnique("code", "A1").isPresent());
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2019, Petr Panteleyev <petr@panteleyev.org>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.panteleyev.persistence;
+
+import org.panteleyev.persistence.base.Base;
+import org.panteleyev.persistence.model.RecordWithPrimitives;
+import org.panteleyev.persistence.model.StringPrimaryKeyRecord;
+import org.testng.annotations.Test;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import static org.panteleyev.persistence.base.Base.MYSQL_GROUP;
+import static org.panteleyev.persistence.base.Base.SQLITE_GROUP;
+import static org.testng.Assert.assertEquals;
+
+@Test(groups = {SQLITE_GROUP, MYSQL_GROUP})
+public class UpsertTest extends Base {
+    public void testUpsert() {
+        var clazz = RecordWithPrimitives.class;
+
+        getDao().createTables(Collections.singletonList(clazz));
+        getDao().preload(Collections.singletonList(clazz));
+
+        var id = getDao().generatePrimaryKey(clazz);
+        var inserted = RecordWithPrimitives.newRecord(id, RANDOM);
+        getDao().upsert(inserted);
+        assertEquals(getDao().get(id, clazz).orElseThrow(), inserted);
+
+        var updated = RecordWithPrimitives.newRecord(id, RANDOM);
+        getDao().upsert(updated);
+        assertEquals(getDao().get(id, clazz).orElseThrow(), updated);
+        assertEquals(getDao().getAll(clazz).size(), 1);
+    }
+
+    public void testBatchUpsert() {
+        var clazz = StringPrimaryKeyRecord.class;
+
+        getDao().createTables(Collections.singletonList(clazz));
+
+        List<StringPrimaryKeyRecord> existing = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            existing.add(new StringPrimaryKeyRecord(UUID.randomUUID().toString(), UUID.randomUUID().toString()));
+        }
+        getDao().insert(7, existing);
+
+        // Every other existing record is changed, plus new records
+        List<StringPrimaryKeyRecord> records = new ArrayList<>();
+        for (int i = 0; i < existing.size(); i += 2) {
+            records.add(new StringPrimaryKeyRecord(existing.get(i).getPrimaryKey(), UUID.randomUUID().toString()));
+        }
+        for (int i = 0; i < 15; i++) {
+            records.add(new StringPrimaryKeyRecord(UUID.randomUUID().toString(), UUID.randomUUID().toString()));
+        }
+        getDao().upsert(4, records);
+
+        var expected = new ArrayList<>(records);
+        for (int i = 1; i < existing.size(); i += 2) {
+            expected.add(existing.get(i));
+        }
+
+        var retrieved = getDao().getAll(clazz);
+        assertEquals(retrieved.size(), expected.size());
+        for (var r : expected) {
+            assertEquals(getDao().get(r.getPrimaryKey(), clazz).orElseThrow(), r);
+        }
+    }
+}
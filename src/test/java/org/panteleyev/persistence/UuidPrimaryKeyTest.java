@@ -27,15 +27,23 @@
 package org.panteleyev.persistence;
 
 import org.panteleyev.persistence.base.Base;
+import org.panteleyev.persistence.model.UuidBinaryPrimaryKeyRecord;
 import org.panteleyev.persistence.model.UuidPrimaryKeyRecord;
+import org.panteleyev.persistence.model.UuidSwappedPrimaryKeyRecord;
 import org.testng.Assert;
+import org.testng.Reporter;
+import org.testng.SkipException;
 import org.testng.annotations.Test;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.UUID;
 import static org.panteleyev.persistence.base.Base.MYSQL_GROUP;
 import static org.panteleyev.persistence.base.Base.SQLITE_GROUP;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertThrows;
 import static org.testng.Assert.assertTrue;
 
 @Test(groups = {SQLITE_GROUP, MYSQL_GROUP})
@@ -96,4 +104,83 @@ public class UuidPrimaryKeyTest extends Base {
         var deleted = getDao().get(id, UuidPrimaryKeyRecord.class);
         assertTrue(deleted.isEmpty());
     }
+
+    @Test
+    public void testTimeOrderedUuidPrimaryKey() {
+        getDao().createTables(Collections.singletonList(UuidSwappedPrimaryKeyRecord.class));
+
+        var records = new ArrayList<UuidSwappedPrimaryKeyRecord>();
+        for (int i = 0; i < 10; i++) {
+            records.add(new UuidSwappedPrimaryKeyRecord(TimeOrderedUuid.randomUuid(), UUID.randomUUID().toString()));
+        }
+        getDao().insert(10, records);
+
+        for (var record : records) {
+            getDao().get(record.getPrimKey(), UuidSwappedPrimaryKeyRecord.class)
+                .ifPresentOrElse(retrieved -> assertEquals(retrieved, record), Assert::fail);
+        }
+
+        getDao().delete(records.get(0).getPrimKey(), UuidSwappedPrimaryKeyRecord.class);
+        assertTrue(getDao().get(records.get(0).getPrimKey(), UuidSwappedPrimaryKeyRecord.class).isEmpty());
+    }
+
+    @Test
+    public void testBinaryUuidIndexUsage() throws SQLException {
+        if (getDao().getDatabaseType() != DAO.DatabaseType.MYSQL) {
+            throw new SkipException("EXPLAIN output is checked for MySQL only");
+        }
+
+        var clazz = UuidBinaryPrimaryKeyRecord.class;
+        getDao().createTables(Collections.singletonList(clazz));
+
+        var records = new ArrayList<UuidBinaryPrimaryKeyRecord>();
+        for (int i = 0; i < 100; i++) {
+            records.add(new UuidBinaryPrimaryKeyRecord(TimeOrderedUuid.randomUuid(), UUID.randomUUID().toString()));
+        }
+        getDao().insert(100, records);
+
+        var id = records.get(50).getPrimKey().toString();
+        assertPrimaryKeyUsed(getDao().getSelectByIdSql(clazz), id);
+        assertPrimaryKeyUsed(getDao().getSelectByIdsSql(clazz, 2), id, records.get(10).getPrimKey().toString());
+        assertPrimaryKeyUsed(getDao().buildUpdateSql(clazz), "value", id);
+        assertPrimaryKeyUsed(getDao().getDeleteSQL(clazz), id);
+    }
+
+    private void assertPrimaryKeyUsed(String sql, String... parameters) throws SQLException {
+        try (var conn = getDao().getDataSource().getConnection();
+             var st = conn.prepareStatement("EXPLAIN " + sql))
+        {
+            for (int i = 0; i < parameters.length; i++) {
+                st.setString(i + 1, parameters[i]);
+            }
+
+            try (var rs = st.executeQuery()) {
+                assertTrue(rs.next());
+                var plan = "type=" + rs.getString("type") + ", key=" + rs.getString("key");
+                Reporter.log("EXPLAIN " + sql + ": " + plan);
+                assertEquals(rs.getString("key"), "PRIMARY", plan);
+                assertNotEquals(rs.getString("type"), "ALL", plan);
+            }
+        }
+    }
+
+    public void testTimeOrderedUuid() {
+        var millis = System.currentTimeMillis();
+        var previous = TimeOrderedUuid.newUuid(millis);
+        assertEquals(previous.version(), 7);
+        assertEquals(previous.variant(), 2);
+        assertEquals(TimeOrderedUuid.getTimestamp(previous), millis);
+
+        // Values generated in the same millisecond are ordered by counter
+        for (int i = 0; i < 10_000; i++) {
+            var uuid = TimeOrderedUuid.newUuid(millis);
+            assertTrue(Long.compareUnsigned(uuid.getMostSignificantBits(), previous.getMostSignificantBits()) > 0);
+            previous = uuid;
+        }
+
+        // Clock moving backwards does not break the order
+        var uuid = TimeOrderedUuid.randomUuid();
+        assertTrue(Long.compareUnsigned(uuid.getMostSignificantBits(), previous.getMostSignificantBits()) > 0);
+        assertThrows(IllegalArgumentException.class, () -> TimeOrderedUuid.getTimestamp(UUID.randomUUID()));
+    }
 }
@@ -26,12 +26,16 @@
 
 package org.panteleyev.persistence.answers;
 
+import org.panteleyev.persistence.annotations.Column;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 abstract class ResultSetAnswer {
     private final Map<String, Object> valueMap = new HashMap<>();
+    private final List<String> columns = new ArrayList<>();
 
     ResultSetAnswer(Object object) {
         for (Field field : object.getClass().getDeclaredFields()) {
@@ -39,13 +43,17 @@ abstract class ResultSetAnswer {
 
             try {
                 valueMap.put(field.getName(), field.get(object));
+                if (field.isAnnotationPresent(Column.class)) {
+                    columns.add(field.getName());
+                }
             } catch (Exception ex) {
                 throw new RuntimeException(ex);
             }
         }
     }
 
-    Object getValue(String fieldName) {
+    Object getValue(Object column) {
+        var fieldName = column instanceof Integer ? columns.get((Integer) column - 1) : (String) column;
         return valueMap.get(fieldName);
     }
 }
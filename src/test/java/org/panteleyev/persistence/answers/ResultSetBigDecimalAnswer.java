@@ -37,8 +37,7 @@ public class ResultSetBigDecimalAnswer extends ResultSetAnswer implements Answer
 
     @Override
     public BigDecimal answer(InvocationOnMock inv) {
-        String fieldName = (String) inv.getArguments()[0];
-        Object result = getValue(fieldName);
+        Object result = getValue(inv.getArguments()[0]);
         return (BigDecimal) result;
     }
 }
@@ -36,8 +36,7 @@ public class ResultSetBooleanAnswer extends ResultSetAnswer implements Answer<Bo
 
     @Override
     public Boolean answer(InvocationOnMock inv) {
-        String fieldName = (String) inv.getArguments()[0];
-        Object result = getValue(fieldName);
+        Object result = getValue(inv.getArguments()[0]);
         return result == null ? false : (Boolean) result;
     }
 }
@@ -36,8 +36,7 @@ public class ResultSetIntAnswer extends ResultSetAnswer implements Answer<Intege
 
     @Override
     public Integer answer(InvocationOnMock inv) {
-        String fieldName = (String) inv.getArguments()[0];
-        Object result = getValue(fieldName);
+        Object result = getValue(inv.getArguments()[0]);
         return result == null ? 0 : (Integer) result;
     }
 }
@@ -37,8 +37,7 @@ public class ResultSetObjectAnswer extends ResultSetAnswer implements Answer<Obj
 
     @Override
     public Object answer(InvocationOnMock inv) {
-        String fieldName = (String) inv.getArguments()[0];
-        Object result = getValue(fieldName);
+        Object result = getValue(inv.getArguments()[0]);
 
         if (result instanceof LocalDate) {
             return ((LocalDate) result).toEpochDay();